@@ -226,6 +226,7 @@ public void reload(ReloadType type) throws Exception {
             });
             logger.debug("Init components successful");
         }
+        invalidateResponseCache();
         if(!type.equals(ReloadType.NO_AUTH)) {
             nettyServerSocketHandler.nettyServer.service.forEachActiveChannels((channel, wsHandler) -> {
                 Client client = wsHandler.getClient();
@@ -404,11 +405,19 @@ public void syncLauncherBinaries() throws IOException {
     public void syncProfilesDir() throws IOException {
         logger.info("Syncing profiles dir");
         config.profileProvider.sync();
+        invalidateResponseCache();
         if (config.netty.sendProfileUpdatesEvent) {
             sendUpdateProfilesEvent();
         }
     }
 
+    private void invalidateResponseCache() {
+        if (nettyServerSocketHandler == null || nettyServerSocketHandler.nettyServer == null || nettyServerSocketHandler.nettyServer.service.responseCache == null) {
+            return;
+        }
+        nettyServerSocketHandler.nettyServer.service.responseCache.invalidate();
+    }
+
     private void sendUpdateProfilesEvent() {
         if (nettyServerSocketHandler == null || nettyServerSocketHandler.nettyServer == null || nettyServerSocketHandler.nettyServer.service == null) {
             return;
@@ -426,6 +435,7 @@ private void sendUpdateProfilesEvent() {
 
     public void syncUpdatesDir(Collection<String> dirs) throws IOException {
         updatesManager.syncUpdatesDir(dirs);
+        invalidateResponseCache();
     }
 
     public void registerObject(String name, Object object) {
@@ -13,12 +13,18 @@
 import pro.gravit.launchserver.auth.AuthProviderPair;
 import pro.gravit.launchserver.auth.MySQLSourceConfig;
 import pro.gravit.launchserver.auth.SQLSourceConfig;
+import pro.gravit.launchserver.auth.core.interfaces.provider.AuthSupportServerSessions;
 import pro.gravit.launchserver.auth.core.interfaces.provider.AuthSupportSudo;
+import pro.gravit.launchserver.auth.core.openid.SQLServerSessionStore;
+import pro.gravit.launchserver.auth.core.openid.ServerSessionStore;
 import pro.gravit.launchserver.auth.password.PasswordVerifier;
 import pro.gravit.launchserver.helper.LegacySessionHelper;
 import pro.gravit.launchserver.manangers.AuthManager;
 import pro.gravit.launchserver.socket.Client;
 import pro.gravit.launchserver.socket.response.auth.AuthResponse;
+import pro.gravit.utils.ExpiringCache;
+import pro.gravit.utils.command.Command;
+import pro.gravit.utils.command.SubCommand;
 import pro.gravit.utils.helper.SecurityHelper;
 
 import java.io.IOException;
@@ -29,13 +35,20 @@
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
-public abstract class AbstractSQLCoreProvider extends AuthCoreProvider implements AuthSupportSudo {
+public abstract class AbstractSQLCoreProvider extends AuthCoreProvider implements AuthSupportSudo, AuthSupportServerSessions {
+    private static final int BATCH_QUERY_SIZE = 100;
     public final transient Logger logger = LogManager.getLogger();
     public long expireSeconds = HOURS.toSeconds(1);
     public String uuidColumn;
@@ -60,6 +73,8 @@ public abstract class AbstractSQLCoreProvider extends AuthCoreProvider implement
     public String customQueryRolesByUserUUID;
     public String customUpdateAuthSQL;
     public String customUpdateServerIdSQL;
+    public UserCacheConfig userCache = new UserCacheConfig();
+    public ServerSessionConfig serverSessions = new ServerSessionConfig();
     // Prepared SQL queries
     public transient String queryByUUIDSQL;
     public transient String queryByUsernameSQL;
@@ -69,39 +84,205 @@ public abstract class AbstractSQLCoreProvider extends AuthCoreProvider implement
 
     public transient String updateAuthSQL;
     public transient String updateServerIDSQL;
+    /**
+     * Users with their permissions by username, login and UUID, null if disabled
+     */
+    protected transient ExpiringCache<String, SQLUser> users;
+    private transient boolean separateLoginQuery;
+    /**
+     * Recent joins for checkServer, null if disabled
+     */
+    protected transient ServerSessionStore serverSessionStore;
 
     public abstract SQLSourceConfig getSQLConfig();
 
     @Override
     public User getUserByUsername(String username) {
-        try {
-            return queryUser(queryByUsernameSQL, username);
-        } catch (Exception e) {
-            logger.error("SQL error", e);
-            return null;
-        }
+        return getCachedUser(usernameKey(username), queryByUsernameSQL, username);
     }
 
     @Override
     public User getUserByUUID(UUID uuid) {
+        return getCachedUser(uuidKey(uuid), queryByUUIDSQL, uuid.toString().replace("-", ""));
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        return getCachedUser(loginKey(login), queryByLoginSQL, login);
+    }
+
+    @Override
+    public List<User> getUsersByUsernames(List<String> usernames) {
+        if (customQueryByUsernameSQL != null) {
+            return super.getUsersByUsernames(usernames);
+        }
+        List<User> result = new ArrayList<>(usernames.size());
+        Set<String> missing = new LinkedHashSet<>();
+        for (String username : usernames) {
+            SQLUser user = users == null || username == null ? null : users.get(usernameKey(username));
+            if (user == null && username != null) {
+                missing.add(username);
+            }
+            result.add(user);
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        Map<String, SQLUser> found;
         try {
-            return queryUser(queryByUUIDSQL, uuid.toString().replace("-", ""));
+            found = queryUsersByUsernames(new ArrayList<>(missing));
         } catch (Exception e) {
             logger.error("SQL error", e);
-            return null;
+            return result;
         }
+        for (int i = 0; i < usernames.size(); i++) {
+            String username = usernames.get(i);
+            if (result.get(i) != null || username == null) {
+                continue;
+            }
+            SQLUser user = found.get(username);
+            if (user == null) {
+                user = found.get(username.toLowerCase(Locale.ROOT));
+            }
+            if (user != null && users != null) {
+                users.put(usernameKey(username), user);
+                users.put(usernameKey(user.username), user);
+                users.put(uuidKey(user.uuid), user);
+            }
+            result.set(i, user);
+        }
+        return result;
     }
 
-    @Override
-    public User getUserByLogin(String login) {
+    /**
+     * @return found users by exact and by lower case username
+     */
+    private Map<String, SQLUser> queryUsersByUsernames(List<String> usernames) throws SQLException {
+        Map<String, SQLUser> found = new HashMap<>();
+        try (Connection c = getSQLConfig().getConnection()) {
+            List<SQLUser> loaded = new ArrayList<>(usernames.size());
+            for (int from = 0; from < usernames.size(); from += BATCH_QUERY_SIZE) {
+                List<String> chunk = usernames.subList(from, Math.min(usernames.size(), from + BATCH_QUERY_SIZE));
+                String sql = "SELECT %s FROM %s WHERE %s IN (%s)".formatted(makeUserCols(), table, usernameColumn, placeholders(chunk.size()));
+                try (PreparedStatement s = c.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        s.setString(i + 1, chunk.get(i));
+                    }
+                    s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
+                    try (ResultSet set = s.executeQuery()) {
+                        for (SQLUser user = constructUser(set); user != null; user = constructUser(set)) {
+                            loaded.add(user);
+                        }
+                    }
+                }
+            }
+            requestPermissions(c, loaded);
+            for (SQLUser user : loaded) {
+                found.putIfAbsent(user.username, user);
+                found.putIfAbsent(user.username.toLowerCase(Locale.ROOT), user);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Plain permissions are read with one query per chunk of users, roles and custom queries are resolved per user
+     */
+    private void requestPermissions(Connection c, List<SQLUser> loaded) throws SQLException {
+        if (loaded.isEmpty()) {
+            return;
+        }
+        if (!isEnabledPermissions() || isEnabledRoles() || customQueryPermissionsByUUIDSQL != null) {
+            for (SQLUser user : loaded) {
+                user.permissions = requestPermissions(c, user.uuid.toString());
+            }
+            return;
+        }
+        Map<String, List<String>> perms = new HashMap<>();
+        for (int from = 0; from < loaded.size(); from += BATCH_QUERY_SIZE) {
+            List<SQLUser> chunk = loaded.subList(from, Math.min(loaded.size(), from + BATCH_QUERY_SIZE));
+            String sql = "SELECT %s, %s FROM %s WHERE %s IN (%s)".formatted(permissionsUUIDColumn, permissionsPermissionColumn,
+                    permissionsTable, permissionsUUIDColumn, placeholders(chunk.size()));
+            try (PreparedStatement s = c.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    s.setString(i + 1, chunk.get(i).uuid.toString());
+                }
+                s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
+                try (ResultSet set = s.executeQuery()) {
+                    while (set.next()) {
+                        perms.computeIfAbsent(set.getString(permissionsUUIDColumn).toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                                .add(set.getString(permissionsPermissionColumn));
+                    }
+                }
+            }
+        }
+        for (SQLUser user : loaded) {
+            user.permissions = new ClientPermissions(new ArrayList<>(), perms.getOrDefault(user.uuid.toString(), new ArrayList<>()));
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private SQLUser getCachedUser(String key, String sql, String value) {
+        if (users != null) {
+            SQLUser user = users.get(key);
+            if (user != null) {
+                return user;
+            }
+        }
+        SQLUser user = getUncachedUser(sql, value);
+        if (user != null && users != null) {
+            users.put(key, user);
+            users.put(usernameKey(user.username), user);
+            users.put(uuidKey(user.uuid), user);
+        }
+        return user;
+    }
+
+    /**
+     * Reads the user from the database, for checks where a stale password or server id is not acceptable
+     */
+    private SQLUser getUncachedUser(String sql, String value) {
         try {
-            return queryUser(queryByLoginSQL, login);
+            return queryUser(sql, value);
         } catch (Exception e) {
             logger.error("SQL error", e);
             return null;
         }
     }
 
+    private static String usernameKey(String username) {
+        return "name:".concat(username);
+    }
+
+    private static String uuidKey(UUID uuid) {
+        return "uuid:".concat(uuid.toString());
+    }
+
+    private String loginKey(String login) {
+        return separateLoginQuery ? "login:".concat(login) : usernameKey(login);
+    }
+
+    /**
+     * Removes the user from the cache after it was changed in the database.
+     * The user may also be cached under logins and requested spellings of the username, so entries are matched by UUID
+     */
+    protected void invalidateUser(User user) {
+        if (users == null) {
+            return;
+        }
+        UUID uuid = user.getUUID();
+        users.removeIf((key, value) -> value.uuid.equals(uuid));
+    }
+
+    public void invalidateUserCache() {
+        if (users != null) {
+            users.clear();
+        }
+    }
+
     @Override
     public AuthManager.AuthReport reportFromOAuth(String accessToken, AuthResponse.AuthContext context) throws IOException {
         SQLUserSession session;
@@ -152,7 +333,7 @@ public AuthManager.AuthReport refreshAccessToken(String refreshToken, AuthRespon
         }
         String username = parts[0];
         String token = parts[1];
-        var user = (SQLUser) getUserByUsername(username);
+        var user = getUncachedUser(queryByUsernameSQL, username);
         if (user == null || user.password == null) {
             return null;
         }
@@ -166,7 +347,7 @@ public AuthManager.AuthReport refreshAccessToken(String refreshToken, AuthRespon
 
     @Override
     public AuthManager.AuthReport authorize(String login, AuthResponse.AuthContext context, AuthRequest.AuthPasswordInterface password, boolean minecraftAccess) throws IOException {
-        SQLUser user = (SQLUser) getUserByLogin(login);
+        SQLUser user = getUncachedUser(queryByLoginSQL, login);
         if (user == null) {
             throw AuthException.userNotFound();
         }
@@ -202,21 +383,88 @@ public AuthManager.AuthReport sudo(User user, boolean shadow) throws IOException
 
     @Override
     public User checkServer(Client client, String username, String serverID) throws IOException {
+        if (serverSessionStore != null) {
+            if (serverSessions.writeMode == ServerSessionWriteMode.NONE) {
+                // The serverID column is not updated, the store is the only source of joins
+                ServerSessionStore.JoinedSession session = serverSessionStore.getSession(username);
+                if (session == null || !serverID.equals(session.serverId())) {
+                    return null;
+                }
+                return session.user() != null ? session.user() : getUserByUsername(username);
+            }
+            User joined = serverSessionStore.getUser(username, serverID);
+            if (joined != null) {
+                return joined;
+            }
+        }
         SQLUser user = (SQLUser) getUserByUsername(username);
         if (user == null) {
             return null;
         }
-        if (user.getUsername().equals(username) && user.getServerId().equals(serverID)) {
+        if (isJoined(user, username, serverID)) {
             return user;
         }
+        if (users != null) {
+            // The cached user may be older than a join handled by another LaunchServer
+            invalidateUser(user);
+            user = (SQLUser) getUserByUsername(username);
+            if (user != null && isJoined(user, username, serverID)) {
+                return user;
+            }
+        }
         return null;
     }
 
+    private static boolean isJoined(SQLUser user, String username, String serverID) {
+        return user.getUsername().equals(username) && user.getServerId() != null && user.getServerId().equals(serverID);
+    }
+
     @Override
     public boolean joinServer(Client client, String username, UUID uuid, String accessToken, String serverID) throws IOException {
         SQLUser user = (SQLUser) client.getUser();
         if (user == null) return false;
-        return (uuid == null ? user.getUsername().equals(username) : user.getUUID().equals(uuid)) && user.getAccessToken().equals(accessToken) && updateServerID(user, serverID);
+        return (uuid == null ? user.getUsername().equals(username) : user.getUUID().equals(uuid)) && user.getAccessToken().equals(accessToken) && joinServer(user, serverID);
+    }
+
+    private boolean joinServer(SQLUser user, String serverID) throws IOException {
+        if (serverSessionStore == null) {
+            return updateServerID(user, serverID);
+        }
+        switch (serverSessions.writeMode) {
+            case NONE -> user.serverId = serverID;
+            case WRITE_THROUGH -> {
+                if (!updateServerID(user, serverID)) {
+                    return false;
+                }
+            }
+            case WRITE_BEHIND -> {
+                user.serverId = serverID;
+                server.service.execute(() -> {
+                    try {
+                        updateServerID(user, serverID);
+                    } catch (Throwable e) {
+                        logger.error("Write behind of server id for {} failed", user.getUsername(), e);
+                    }
+                });
+            }
+        }
+        return serverSessionStore.joinServer(user, serverID) || serverSessions.writeMode != ServerSessionWriteMode.NONE;
+    }
+
+    @Override
+    public ServerSessionStore getServerSessionStore() {
+        return serverSessionStore;
+    }
+
+    protected ServerSessionStore createServerSessionStore() {
+        return switch (serverSessions.store) {
+            case MEMORY -> new MemoryServerSessionStore(serverSessions.maxSize, serverSessions.expireSeconds);
+            case SQL -> {
+                SQLServerSessionStore store = new SQLServerSessionStore(getSQLConfig());
+                store.init();
+                yield store;
+            }
+        };
     }
 
     @Override
@@ -235,6 +483,13 @@ public void init(LaunchServer server, AuthProviderPair pair) {
         queryByUsernameSQL = customQueryByUsernameSQL != null ? customQueryByUsernameSQL :
                 "SELECT %s FROM %s WHERE %s=? LIMIT 1".formatted(userInfoCols, table, usernameColumn);
         queryByLoginSQL = customQueryByLoginSQL != null ? customQueryByLoginSQL : queryByUsernameSQL;
+        separateLoginQuery = !queryByLoginSQL.equals(queryByUsernameSQL);
+        if (userCache != null && userCache.enabled) {
+            users = new ExpiringCache<>(userCache.maxSize, userCache.expireSeconds, SECONDS);
+        }
+        if (serverSessions != null && serverSessions.enabled) {
+            serverSessionStore = createServerSessionStore();
+        }
 
 
 
@@ -272,13 +527,20 @@ protected void updateAuth(User user, String accessToken) throws IOException {
         try (Connection c = getSQLConfig().getConnection()) {
             SQLUser SQLUser = (SQLUser) user;
             SQLUser.accessToken = accessToken;
-            PreparedStatement s = c.prepareStatement(updateAuthSQL);
-            s.setString(1, accessToken);
-            s.setString(2, user.getUUID().toString());
-            s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
-            s.executeUpdate();
+            try (PreparedStatement s = c.prepareStatement(updateAuthSQL)) {
+                s.setString(1, accessToken);
+                s.setString(2, user.getUUID().toString());
+                s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
+                s.executeUpdate();
+            }
+            if (serverSessionStore != null) {
+                // The update clears the serverID column, joins kept by the store must end too
+                serverSessionStore.removeSession(user.getUUID(), user.getUsername());
+            }
         } catch (SQLException e) {
             throw new IOException(e);
+        } finally {
+            invalidateUser(user);
         }
     }
 
@@ -286,18 +548,62 @@ protected boolean updateServerID(User user, String serverID) throws IOException
         try (Connection c = getSQLConfig().getConnection()) {
             SQLUser SQLUser = (SQLUser) user;
             SQLUser.serverId = serverID;
-            PreparedStatement s = c.prepareStatement(updateServerIDSQL);
-            s.setString(1, serverID);
-            s.setString(2, user.getUUID().toString());
-            s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
-            return s.executeUpdate() > 0;
+            try (PreparedStatement s = c.prepareStatement(updateServerIDSQL)) {
+                s.setString(1, serverID);
+                s.setString(2, user.getUUID().toString());
+                s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
+                return s.executeUpdate() > 0;
+            }
         } catch (SQLException e) {
             throw new IOException(e);
+        } finally {
+            invalidateUser(user);
         }
     }
 
+    @Override
+    public Map<String, Command> getCommands() {
+        Map<String, Command> map = super.getCommands();
+        map.put("usercache", new SubCommand("(clear)", "show user cache statistics or clear it") {
+            @Override
+            public void invoke(String... args) {
+                if (users == null) {
+                    logger.info("User cache is disabled");
+                    return;
+                }
+                if (args.length > 0 && args[0].equals("clear")) {
+                    invalidateUserCache();
+                    logger.info("User cache cleared");
+                    return;
+                }
+                ExpiringCache.Stats stats = users.getStats();
+                logger.info("User cache: size {} | hits {} | misses {} | hit rate {}% | evictions {}", stats.size(),
+                        stats.hits(), stats.misses(), Math.round(stats.hitRate() * 100), stats.evictions());
+            }
+        });
+        map.put("serversessions", new SubCommand("", "show statistics of server sessions kept in memory") {
+            @Override
+            public void invoke(String... args) {
+                if (!(serverSessionStore instanceof MemoryServerSessionStore memoryStore)) {
+                    logger.info("Server sessions are not kept in memory");
+                    return;
+                }
+                ExpiringCache.Stats stats = memoryStore.getStats();
+                logger.info("Server sessions: size {} | hits {} | misses {} | write mode {}", stats.size(),
+                        stats.hits(), stats.misses(), serverSessions.writeMode);
+            }
+        });
+        return map;
+    }
+
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public void close() {
+        invalidateUserCache();
         getSQLConfig().close();
     }
 
@@ -313,36 +619,44 @@ protected SQLUser constructUser(ResultSet set) throws SQLException {
 
     public ClientPermissions requestPermissions (String uuid)  throws SQLException
     {
-        return new ClientPermissions(isEnabledRoles() ? queryRolesNames(queryRolesByUserUUID,uuid) : new ArrayList<>(),
-                isEnabledPermissions() ? queryPermissions(queryPermissionsByUUIDSQL,uuid) : new ArrayList<>());
+        try (Connection c = getSQLConfig().getConnection()) {
+            return requestPermissions(c, uuid);
+        }
+    }
+
+    protected ClientPermissions requestPermissions(Connection c, String uuid) throws SQLException {
+        return new ClientPermissions(isEnabledRoles() ? queryStrings(c, queryRolesByUserUUID, uuid, rolesNameColumn) : new ArrayList<>(),
+                isEnabledPermissions() ? queryStrings(c, queryPermissionsByUUIDSQL, uuid, permissionsPermissionColumn) : new ArrayList<>());
     }
 
     private SQLUser queryUser(String sql, String value) throws SQLException {
-        SQLUser user;
+        // The user row, roles and permissions are read with one pool checkout
         try (Connection c = getSQLConfig().getConnection()) {
-            PreparedStatement s = c.prepareStatement(sql);
-            s.setString(1, value);
-            s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
-            try (ResultSet set = s.executeQuery()) {
-                user = constructUser(set);
+            SQLUser user;
+            try (PreparedStatement s = c.prepareStatement(sql)) {
+                s.setString(1, value);
+                s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
+                try (ResultSet set = s.executeQuery()) {
+                    user = constructUser(set);
+                }
             }
+            if (user != null) {
+                user.permissions = requestPermissions(c, user.uuid.toString());
+            }
+            return user;
         }
-        if(user != null) {
-            user.permissions = requestPermissions(user.uuid.toString());
-        }
-        return user;
     }
 
-    private List<String> queryPermissions(String sql, String value) throws SQLException {
-        try (Connection c = getSQLConfig().getConnection()) {
-            PreparedStatement s = c.prepareStatement(sql);
+    private List<String> queryStrings(Connection c, String sql, String value, String column) throws SQLException {
+        try (PreparedStatement s = c.prepareStatement(sql)) {
             s.setString(1, value);
             s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
-            ResultSet set = s.executeQuery();
-            List<String> perms = new ArrayList<>();
-            while (set.next())
-                perms.add(set.getString(permissionsPermissionColumn));
-            return perms;
+            try (ResultSet set = s.executeQuery()) {
+                List<String> result = new ArrayList<>();
+                while (set.next())
+                    result.add(set.getString(column));
+                return result;
+            }
         }
     }
 
@@ -358,17 +672,34 @@ public boolean isEnabledRoles() {
         return rolesNameColumn != null;
     }
 
-    private List<String> queryRolesNames(String sql, String value) throws SQLException {
-        try (Connection c = getSQLConfig().getConnection()) {
-            PreparedStatement s = c.prepareStatement(sql);
-            s.setString(1, value);
-            s.setQueryTimeout(MySQLSourceConfig.TIMEOUT);
-            ResultSet set = s.executeQuery();
-            List<String> perms = new ArrayList<>();
-            while (set.next())
-                perms.add(set.getString(rolesNameColumn));
-            return perms;
-        }
+    public static class UserCacheConfig {
+        public boolean enabled = true;
+        public int maxSize = 10000;
+        public long expireSeconds = 60;
+    }
+
+    public static class ServerSessionConfig {
+        public boolean enabled = true;
+        /**
+         * MEMORY is local to this LaunchServer; SQL keeps sessions in the gravit_server_session table (MySQL syntax),
+         * shared between LaunchServers using the same database. maxSize and expireSeconds apply to MEMORY only
+         */
+        public ServerSessionStoreType store = ServerSessionStoreType.MEMORY;
+        public int maxSize = 10000;
+        public long expireSeconds = 60;
+        /**
+         * How joins reach the serverID column: NONE keeps them in memory only, which is valid for a single
+         * LaunchServer; WRITE_BEHIND updates the database asynchronously; WRITE_THROUGH before answering
+         */
+        public ServerSessionWriteMode writeMode = ServerSessionWriteMode.WRITE_THROUGH;
+    }
+
+    public enum ServerSessionWriteMode {
+        NONE, WRITE_THROUGH, WRITE_BEHIND
+    }
+
+    public enum ServerSessionStoreType {
+        MEMORY, SQL
     }
 
     public static class SQLUser implements User {
@@ -32,6 +32,7 @@
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,19 @@ public static void registerProviders() {
 
     public abstract User getUserByUsername(String username);
 
+    /**
+     * Finds many users at once, providers backed by a database should override it with a single query
+     *
+     * @return users in the order of usernames, null for not found
+     */
+    public List<User> getUsersByUsernames(List<String> usernames) {
+        List<User> users = new ArrayList<>(usernames.size());
+        for (String username : usernames) {
+            users.add(getUserByUsername(username));
+        }
+        return users;
+    }
+
     public User getUserByLogin(String login) {
         return getUserByUsername(login);
     }
@@ -117,6 +131,14 @@ public List<GetAvailabilityAuthRequestEvent.AuthAvailabilityDetails> getDetails(
         return List.of(new AuthPasswordDetails());
     }
 
+    /**
+     * Override to return true when {@link #getDetails(Client)} returns the same details for every client
+     * @return true if the result of {@link #getDetails(Client)} can be shared between clients
+     */
+    public boolean isDetailsCacheable() {
+        return false;
+    }
+
     @Override
     public Map<String, Command> getCommands() {
         Map<String, Command> map = defaultCommandsMap();
@@ -349,6 +371,7 @@ public void invoke(String... args) throws Exception {
                                         report.minecraftAccessToken(), null, null,
                                         new AuthRequestEvent.OAuthRequestEvent(report.oauthAccessToken(), report.oauthRefreshToken(), report.oauthExpire()));
                                 request.requestUUID = RequestEvent.eventUUID;
+                                server.nettyServerSocketHandler.nettyServer.service.updateIndexes(ch);
                                 server.nettyServerSocketHandler.nettyServer.service.sendObject(ch, request);
                             } catch (Throwable e) {
                                 logger.error("Sudo error", e);
@@ -348,6 +348,11 @@ public List<GetAvailabilityAuthRequestEvent.AuthAvailabilityDetails> getDetails(
         return List.of(new AuthPasswordDetails(), new AuthTotpDetails("SHA1"));
     }
 
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public boolean joinServer(Client client, String username, UUID uuid, String accessToken, String serverID) throws IOException {
         if (!isDatabaseMode) {
@@ -40,6 +40,11 @@ public List<GetAvailabilityAuthRequestEvent.AuthAvailabilityDetails> getDetails(
         return List.of(new AuthLoginOnlyDetails());
     }
 
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public User getUserByUUID(UUID uuid) {
         synchronized (memory) {
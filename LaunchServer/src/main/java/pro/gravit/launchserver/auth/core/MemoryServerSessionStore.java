@@ -0,0 +1,67 @@
+package pro.gravit.launchserver.auth.core;
+
+import pro.gravit.launchserver.auth.core.openid.ServerSessionStore;
+import pro.gravit.utils.ExpiringCache;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps joined server ids in memory for a short time, so checkServer can be answered without the database.
+ * Sessions are lost on restart and are not shared between LaunchServer instances
+ */
+public class MemoryServerSessionStore implements ServerSessionStore {
+    private final ExpiringCache<String, Session> sessions;
+
+    public MemoryServerSessionStore(int maxSize, long expireSeconds) {
+        this.sessions = new ExpiringCache<>(maxSize, expireSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public boolean joinServer(UUID uuid, String username, String serverId) {
+        sessions.put(username, new Session(uuid, username, serverId, null));
+        return true;
+    }
+
+    /**
+     * Also remembers the user object, so {@link #getUser(String, String)} doesn't need to load it
+     */
+    @Override
+    public boolean joinServer(User user, String serverId) {
+        sessions.put(user.getUsername(), new Session(user.getUUID(), user.getUsername(), serverId, user));
+        return true;
+    }
+
+    @Override
+    public String getServerIdByUsername(String username) {
+        Session session = sessions.get(username);
+        return session == null ? null : session.serverId();
+    }
+
+    @Override
+    public User getUser(String username, String serverId) {
+        Session session = sessions.get(username);
+        if (session == null || session.user() == null || !session.serverId().equals(serverId)) {
+            return null;
+        }
+        return session.user();
+    }
+
+    @Override
+    public JoinedSession getSession(String username) {
+        Session session = sessions.get(username);
+        return session == null ? null : new JoinedSession(session.serverId(), session.user());
+    }
+
+    @Override
+    public void removeSession(UUID uuid, String username) {
+        sessions.remove(username);
+    }
+
+    public ExpiringCache.Stats getStats() {
+        return sessions.getStats();
+    }
+
+    public record Session(UUID uuid, String username, String serverId, User user) {
+    }
+}
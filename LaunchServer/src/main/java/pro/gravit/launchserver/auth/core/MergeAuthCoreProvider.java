@@ -84,6 +84,11 @@ public void init(LaunchServer server, AuthProviderPair pair1) {
         }
     }
 
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public void close() {
         // Providers closed automatically
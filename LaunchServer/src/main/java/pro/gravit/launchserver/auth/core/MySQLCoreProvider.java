@@ -198,6 +198,8 @@ public void connectUserAndHardware(UserSession userSession, UserHardware hardwar
             setUserHardwareId(connection, mySQLUser.getUUID(), mySQLUserHardware.id);
         } catch (SQLException throwables) {
             logger.error("SQL Error", throwables);
+        } finally {
+            invalidateUser(mySQLUser);
         }
     }
 
@@ -50,6 +50,11 @@ public boolean joinServer(Client client, String username, UUID uuid, String acce
         return false;
     }
 
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public void close() {
 
@@ -220,6 +220,8 @@ public void connectUserAndHardware(UserSession userSession, UserHardware hardwar
             setUserHardwareId(connection, SQLUser.getUUID(), SQLUserHardware.id);
         } catch (SQLException throwables) {
             logger.error("SQL Error", throwables);
+        } finally {
+            invalidateUser(SQLUser);
         }
     }
 
@@ -295,14 +297,8 @@ protected AbstractSQLCoreProvider.SQLUserSession createSession(AbstractSQLCorePr
 
     @Override
     public UserSession extendedCheckServer(Client client, String username, String serverID) throws IOException {
-        AbstractSQLCoreProvider.SQLUser user = (AbstractSQLCoreProvider.SQLUser) getUserByUsername(username);
-        if (user == null) {
-            return null;
-        }
-        if (user.getUsername().equals(username) && user.getServerId().equals(serverID)) {
-            return createSession(user);
-        }
-        return null;
+        AbstractSQLCoreProvider.SQLUser user = (AbstractSQLCoreProvider.SQLUser) checkServer(client, username, serverID);
+        return user == null ? null : createSession(user);
     }
 
     public class SQLUserSession extends AbstractSQLCoreProvider.SQLUserSession implements UserSessionSupportHardware {
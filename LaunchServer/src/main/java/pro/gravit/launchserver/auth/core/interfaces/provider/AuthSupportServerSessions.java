@@ -0,0 +1,10 @@
+package pro.gravit.launchserver.auth.core.interfaces.provider;
+
+import pro.gravit.launchserver.auth.core.openid.ServerSessionStore;
+
+public interface AuthSupportServerSessions {
+    /**
+     * @return store of recent joins or null if it is disabled
+     */
+    ServerSessionStore getServerSessionStore();
+}
@@ -39,6 +39,11 @@ public List<GetAvailabilityAuthRequestEvent.AuthAvailabilityDetails> getDetails(
         return openIDAuthenticator.getDetails();
     }
 
+    @Override
+    public boolean isDetailsCacheable() {
+        return true;
+    }
+
     @Override
     public User getUserByUsername(String username) {
         return sqlUserStore.getByUsername(username);
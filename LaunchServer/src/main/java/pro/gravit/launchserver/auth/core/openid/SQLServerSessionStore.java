@@ -81,6 +81,18 @@ public String getServerIdByUsername(String username) {
         return null;
     }
 
+    @Override
+    public void removeSession(UUID uuid, String username) {
+        try (var connection = sqlSourceConfig.getConnection();
+             var deleteServerIdStmt = connection.prepareStatement(DELETE_SERVER_ID)) {
+            deleteServerIdStmt.setString(1, uuid.toString());
+            deleteServerIdStmt.execute();
+        } catch (SQLException e) {
+            LogHelper.debug("Can't remove server session. Username: %s".formatted(username));
+            LogHelper.error(e);
+        }
+    }
+
     public void init() {
         try (var connection = sqlSourceConfig.getConnection()) {
             connection.setAutoCommit(false);
@@ -1,8 +1,46 @@
 package pro.gravit.launchserver.auth.core.openid;
 
+import pro.gravit.launchserver.auth.core.User;
+
 import java.util.UUID;
 
 public interface ServerSessionStore {
     boolean joinServer(UUID uuid, String username, String serverId);
     String getServerIdByUsername(String username);
+
+    /**
+     * Same as {@link #joinServer(UUID, String, String)}, stores that keep users may remember the object itself
+     */
+    default boolean joinServer(User user, String serverId) {
+        return joinServer(user.getUUID(), user.getUsername(), serverId);
+    }
+
+    /**
+     * @return user joined with this server id or null if there is no such session or the store keeps only ids
+     */
+    default User getUser(String username, String serverId) {
+        return null;
+    }
+
+    /**
+     * Server id of the last join with the user, if the store keeps users, in one lookup
+     *
+     * @return null if the user has not joined
+     */
+    default JoinedSession getSession(String username) {
+        String serverId = getServerIdByUsername(username);
+        return serverId == null ? null : new JoinedSession(serverId, null);
+    }
+
+    /**
+     * Forgets the join, called when older joins of the user must stop working, e.g. after a new login
+     */
+    default void removeSession(UUID uuid, String username) {
+    }
+
+    /**
+     * @param user null if the store keeps only server ids
+     */
+    record JoinedSession(String serverId, User user) {
+    }
 }
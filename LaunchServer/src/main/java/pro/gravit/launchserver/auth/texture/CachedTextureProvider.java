@@ -0,0 +1,167 @@
+package pro.gravit.launchserver.auth.texture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pro.gravit.launcher.base.profiles.Texture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches assets of another texture provider. Concurrent lookups of the same user share one request,
+ * expired entries are still returned for {@link #staleSeconds} while they are reloaded in background
+ */
+public class CachedTextureProvider extends TextureProvider {
+    private transient final Logger logger = LogManager.getLogger();
+    private transient final Map<AssetsRequest, Entry> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<AssetsRequest, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private transient final Map<AssetsRequest, CompletableFuture<Map<String, Texture>>> loading = new ConcurrentHashMap<>();
+    private transient final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    public TextureProvider provider;
+    public int maxSize = 10000;
+    public long expireSeconds = 300;
+    /**
+     * Lifetime of users without any assets, shorter because the nested provider also returns nothing on errors
+     */
+    public long negativeExpireSeconds = 30;
+    public long staleSeconds = 600;
+
+    @Override
+    public void close() throws IOException {
+        refreshExecutor.shutdownNow();
+        synchronized (cache) {
+            cache.clear();
+        }
+        provider.close();
+    }
+
+    @Override
+    public Texture getCloakTexture(UUID uuid, String username, String client) {
+        return getAssets(uuid, username, client).get("CAPE");
+    }
+
+    @Override
+    public Texture getSkinTexture(UUID uuid, String username, String client) {
+        return getAssets(uuid, username, client).get("SKIN");
+    }
+
+    @Override
+    public Map<String, Texture> getAssets(UUID uuid, String username, String client) {
+        return getAssets(List.of(new AssetsRequest(uuid, username, client))).get(0);
+    }
+
+    @Override
+    public List<Map<String, Texture>> getAssets(List<AssetsRequest> requests) {
+        long now = System.nanoTime();
+        List<CompletableFuture<Map<String, Texture>>> futures = new ArrayList<>(requests.size());
+        List<AssetsRequest> owned = new ArrayList<>();
+        List<CompletableFuture<Map<String, Texture>>> ownedFutures = new ArrayList<>();
+        for (AssetsRequest request : requests) {
+            Entry entry;
+            synchronized (cache) {
+                entry = cache.get(request);
+            }
+            if (entry != null && now - entry.expiresAt < TimeUnit.SECONDS.toNanos(staleSeconds)) {
+                if (now - entry.expiresAt >= 0) {
+                    refresh(request);
+                }
+                futures.add(CompletableFuture.completedFuture(entry.assets));
+                continue;
+            }
+            CompletableFuture<Map<String, Texture>> future = new CompletableFuture<>();
+            CompletableFuture<Map<String, Texture>> existing = loading.putIfAbsent(request, future);
+            if (existing == null) {
+                owned.add(request);
+                ownedFutures.add(future);
+                futures.add(future);
+            } else {
+                futures.add(existing);
+            }
+        }
+        if (!owned.isEmpty()) {
+            load(owned, ownedFutures);
+        }
+        List<Map<String, Texture>> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<Map<String, Texture>> future : futures) {
+            try {
+                // Callers may modify the map, the cached one is shared
+                result.add(new HashMap<>(future.join()));
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    private void load(List<AssetsRequest> requests, List<CompletableFuture<Map<String, Texture>>> futures) {
+        try {
+            List<Map<String, Texture>> assets = requests.size() == 1 ?
+                    Collections.singletonList(provider.getAssets(requests.get(0).uuid(), requests.get(0).username(), requests.get(0).client())) :
+                    provider.getAssets(requests);
+            for (int i = 0; i < requests.size(); ++i) {
+                futures.get(i).complete(put(requests.get(i), assets.get(i)));
+            }
+        } catch (Throwable e) {
+            for (CompletableFuture<Map<String, Texture>> future : futures) {
+                future.completeExceptionally(e);
+            }
+        } finally {
+            for (int i = 0; i < requests.size(); ++i) {
+                loading.remove(requests.get(i), futures.get(i));
+            }
+        }
+    }
+
+    private void refresh(AssetsRequest request) {
+        CompletableFuture<Map<String, Texture>> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(request, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                load(List.of(request), List.of(future));
+                if (future.isCompletedExceptionally()) {
+                    logger.error("Texture refresh for {} failed", request.username(), future.exceptionNow());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(request, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    private Map<String, Texture> put(AssetsRequest request, Map<String, Texture> assets) {
+        if (assets == null) {
+            assets = new HashMap<>();
+        }
+        long expire = assets.isEmpty() ? negativeExpireSeconds : expireSeconds;
+        Entry entry = new Entry(assets, System.nanoTime() + TimeUnit.SECONDS.toNanos(expire));
+        synchronized (cache) {
+            cache.put(request, entry);
+        }
+        return assets;
+    }
+
+    private record Entry(Map<String, Texture> assets, long expiresAt) {
+    }
+}
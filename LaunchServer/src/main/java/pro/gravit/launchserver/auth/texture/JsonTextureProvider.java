@@ -9,17 +9,26 @@
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 public class JsonTextureProvider extends TextureProvider {
     private static final Type MAP_TYPE = new TypeToken<Map<String, JsonTexture>>() {
     }.getType();
+    private static final Type LIST_TYPE = new TypeToken<List<Map<String, JsonTexture>>>() {
+    }.getType();
     private transient final Logger logger = LogManager.getLogger();
     private transient final HttpRequester requester = new HttpRequester();
     public String url;
     public String bearerToken;
+    /**
+     * Receives a POST with a list of {uuid, username, client} and returns a list of asset maps in the same order.
+     * Without it, every user is requested from {@link #url} separately
+     */
+    public String batchUrl;
 
     @Override
     public void close() {
@@ -49,6 +58,30 @@ public Map<String, Texture> getAssets(UUID uuid, String username, String client)
         }
     }
 
+    @Override
+    public List<Map<String, Texture>> getAssets(List<AssetsRequest> requests) {
+        if (batchUrl == null || requests.size() <= 1) {
+            return super.getAssets(requests);
+        }
+        List<Map<String, Texture>> result = new ArrayList<>(requests.size());
+        try {
+            List<Map<String, JsonTexture>> list = requester.<List<Map<String, JsonTexture>>>send(requester.post(batchUrl, requests, bearerToken), LIST_TYPE).getOrThrow();
+            if (list == null || list.size() != requests.size()) {
+                throw new IOException("Batch texture response has %d entries, expected %d".formatted(list == null ? 0 : list.size(), requests.size()));
+            }
+            for (Map<String, JsonTexture> map : list) {
+                result.add(JsonTexture.convertMap(map));
+            }
+        } catch (IOException e) {
+            logger.error("JsonTextureProvider", e);
+            result.clear();
+            for (int i = 0; i < requests.size(); i++) {
+                result.add(new HashMap<>());
+            }
+        }
+        return result;
+    }
+
     public record JsonTexture(String url, String digest, Map<String, String> metadata) {
         public Texture toTexture() {
             return new Texture(url, digest == null ? null : SecurityHelper.fromHex(digest), metadata);
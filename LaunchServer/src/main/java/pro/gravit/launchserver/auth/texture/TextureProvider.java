@@ -4,7 +4,9 @@
 import pro.gravit.utils.ProviderMap;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -20,6 +22,7 @@ public static void registerProviders() {
             // Auth providers that doesn't do nothing :D
             providers.register("request", RequestTextureProvider.class);
             providers.register("json", JsonTextureProvider.class);
+            providers.register("cached", CachedTextureProvider.class);
             registredProv = true;
         }
     }
@@ -82,6 +85,22 @@ public Map<String, Texture> getAssets(UUID uuid, String username, String client)
         return map;
     }
 
+    /**
+     * Assets of many users at once, providers backed by a remote service should override it with a single request
+     *
+     * @return assets in the order of requests
+     */
+    public List<Map<String, Texture>> getAssets(List<AssetsRequest> requests) {
+        List<Map<String, Texture>> result = new ArrayList<>(requests.size());
+        for (AssetsRequest request : requests) {
+            result.add(getAssets(request.uuid(), request.username(), request.client()));
+        }
+        return result;
+    }
+
+    public record AssetsRequest(UUID uuid, String username, String client) {
+    }
+
     @Deprecated
     public static class SkinAndCloakTextures {
         public final Texture skin;
@@ -2,30 +2,58 @@
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pro.gravit.launcher.base.events.request.UpdateRequestEvent;
 import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.hasher.HashedFile;
 import pro.gravit.launcher.core.serialize.HInput;
 import pro.gravit.launcher.core.serialize.HOutput;
 import pro.gravit.launchserver.LaunchServer;
 import pro.gravit.launchserver.modules.events.LaunchServerUpdatesSyncEvent;
 import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.SecurityHelper;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 public class LocalUpdatesProvider extends UpdatesProvider {
+    private static final int CACHE_MAGIC = 0x48444D31;
     private final transient Logger logger = LogManager.getLogger();
     public String cacheFile = ".updates-cache";
     public String updatesDir = "updates";
     public boolean cacheUpdates = true;
+    public int hashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public String hashCacheFile = ".updates-hash-cache";
+    public boolean cacheHashes = true;
+    public int historySize = 3;
+    public boolean precompress = true;
+    public String precompressedDir = ".updates-precompressed";
+    public long precompressMinSize = 1024;
+    public List<String> precompressExtensions = List.of("json", "txt", "cfg", "conf", "toml", "properties", "xml", "yml", "yaml", "js", "lang", "mcmeta", "snbt", "csv");
     private volatile transient Map<String, HashedDir> updatesDirMap;
+    private transient Map<String, Map<String, CachedDigest>> hashCacheMap;
+    private final transient Map<HashedDir, String> compactUpdatesDirMap = new ConcurrentHashMap<>();
+    private final transient Map<String, Map<String, HashedDir>> historyMap = new ConcurrentHashMap<>();
+    private final transient Map<String, HashedDir.Delta> deltaCacheMap = new ConcurrentHashMap<>();
+    private volatile transient Set<String> precompressedDigests = Set.of();
+    private final transient Set<String> incompressibleDigests = ConcurrentHashMap.newKeySet();
 
     private void writeCache(Path file) throws IOException {
         try (HOutput output = new HOutput(IOHelper.newOutput(file))) {
+            output.writeInt(CACHE_MAGIC);
             output.writeLength(updatesDirMap.size(), 0);
             for (Map.Entry<String, HashedDir> entry : updatesDirMap.entrySet()) {
                 output.writeString(entry.getKey(), 0);
@@ -38,6 +66,9 @@ private void writeCache(Path file) throws IOException {
     private void readCache(Path file) throws IOException {
         Map<String, HashedDir> updatesDirMap = new HashMap<>(16);
         try (HInput input = new HInput(IOHelper.newInput(file))) {
+            if (input.readInt() != CACHE_MAGIC) {
+                throw new IOException("Updates cache has outdated format");
+            }
             int size = input.readLength(0);
             for (int i = 0; i < size; ++i) {
                 String name = input.readString(0);
@@ -47,6 +78,164 @@ private void readCache(Path file) throws IOException {
         }
         logger.debug("Found {} updates from cache", updatesDirMap.size());
         this.updatesDirMap = Collections.unmodifiableMap(updatesDirMap);
+        compactUpdatesDirMap.clear();
+        updatesDirMap.forEach(this::addToHistory);
+        syncPrecompressed(updatesDirMap);
+    }
+
+    /**
+     * Creates gzip variants of compressible files, named by content digest, and removes stale ones.
+     * Already existing variants are reused, so every content is compressed only once
+     */
+    private void syncPrecompressed(Map<String, HashedDir> dirs) {
+        if (!precompress) {
+            precompressedDigests = Set.of();
+            return;
+        }
+        Path target = Path.of(precompressedDir);
+        Set<String> digests = new HashSet<>();
+        try {
+            Files.createDirectories(target);
+            for (Map.Entry<String, HashedDir> e : dirs.entrySet()) {
+                Path root = Path.of(updatesDir).resolve(e.getKey());
+                e.getValue().walk("/", (path, name, entry) -> {
+                    if (entry instanceof HashedFile file && file.getDigest() != null && isCompressible(name, file.size)) {
+                        String digest = SecurityHelper.toHex(file.getDigest());
+                        if (digests.contains(digest) || incompressibleDigests.contains(digest)) {
+                            return HashedDir.WalkAction.CONTINUE;
+                        }
+                        if (writePrecompressed(root.resolve(path), target.resolve(digest.concat(".gz")), file, digest)) {
+                            digests.add(digest);
+                        }
+                    }
+                    return HashedDir.WalkAction.CONTINUE;
+                });
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(target, "*.gz")) {
+                for (Path file : stream) {
+                    String name = IOHelper.getFileName(file);
+                    if (!digests.contains(name.substring(0, name.length() - 3))) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Precompress updates failed", e);
+        }
+        logger.debug("Precompressed {} files", digests.size());
+        precompressedDigests = Collections.unmodifiableSet(digests);
+    }
+
+    private boolean isCompressible(String name, long size) {
+        if (size < precompressMinSize) {
+            return false;
+        }
+        int index = name.lastIndexOf('.');
+        return index >= 0 && precompressExtensions.contains(name.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Remembers files that don't compress well, failed attempts are retried on the next sync
+     *
+     * @return true if the variant exists and is noticeably smaller than the file
+     */
+    private boolean writePrecompressed(Path source, Path target, HashedFile file, String hexDigest) {
+        if (Files.exists(target)) {
+            return true;
+        }
+        Path temp = target.resolveSibling(IOHelper.getFileName(target).concat(".tmp"));
+        try {
+            MessageDigest digest = SecurityHelper.newDigest(HashedFile.DIGEST_ALGO);
+            try (InputStream input = new DigestInputStream(IOHelper.newInput(source), digest);
+                 OutputStream output = new GZIPOutputStream(IOHelper.newOutput(temp))) {
+                IOHelper.transfer(input, output);
+            }
+            // File could change after hashing, its variant must match the digest clients verify
+            if (!Arrays.equals(digest.digest(), file.getDigest())) {
+                Files.delete(temp);
+                return false;
+            }
+            if (Files.size(temp) > file.size * 9 / 10) {
+                Files.delete(temp);
+                incompressibleDigests.add(hexDigest);
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Precompress {} failed: {}", source, e.toString());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    private void addToHistory(String name, HashedDir dir) {
+        String version = UpdateRequestEvent.versionOf(dir);
+        if (version == null || historySize <= 0) {
+            return;
+        }
+        Map<String, HashedDir> history = historyMap.computeIfAbsent(name, k -> Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HashedDir> eldest) {
+                return size() > historySize;
+            }
+        }));
+        history.put(version, dir);
+    }
+
+    private void writeHashCache(Path file) throws IOException {
+        try (HOutput output = new HOutput(IOHelper.newOutput(file))) {
+            output.writeLength(hashCacheMap.size(), 0);
+            for (Map.Entry<String, Map<String, CachedDigest>> dir : hashCacheMap.entrySet()) {
+                output.writeString(dir.getKey(), 0);
+                output.writeLength(dir.getValue().size(), 0);
+                for (Map.Entry<String, CachedDigest> entry : dir.getValue().entrySet()) {
+                    CachedDigest cached = entry.getValue();
+                    output.writeString(entry.getKey(), 0);
+                    output.writeVarLong(cached.size);
+                    output.writeLong(cached.modified);
+                    output.writeString(cached.fileKey, 0);
+                    output.writeByteArray(cached.digest, 0);
+                }
+            }
+        }
+        logger.debug("Saved hashes of {} update dirs to cache", hashCacheMap.size());
+    }
+
+    private Map<String, Map<String, CachedDigest>> readHashCache(Path file) throws IOException {
+        Map<String, Map<String, CachedDigest>> hashCacheMap = new HashMap<>(16);
+        try (HInput input = new HInput(IOHelper.newInput(file))) {
+            int dirs = input.readLength(0);
+            for (int i = 0; i < dirs; ++i) {
+                String name = input.readString(0);
+                int size = input.readLength(0);
+                Map<String, CachedDigest> entries = new HashMap<>(size);
+                for (int j = 0; j < size; ++j) {
+                    String path = input.readString(0);
+                    entries.put(path, new CachedDigest(input.readVarLong(), input.readLong(), input.readString(0), input.readByteArray(0)));
+                }
+                hashCacheMap.put(name, entries);
+            }
+        }
+        return hashCacheMap;
+    }
+
+    private Map<String, Map<String, CachedDigest>> getHashCache() {
+        if (hashCacheMap == null) {
+            hashCacheMap = new HashMap<>(16);
+            Path hashCacheFilePath = Path.of(hashCacheFile);
+            if (Files.exists(hashCacheFilePath)) {
+                try {
+                    hashCacheMap = readHashCache(hashCacheFilePath);
+                } catch (Throwable e) {
+                    logger.error("Read hash cache failed", e);
+                }
+            }
+        }
+        return hashCacheMap;
     }
 
     public void readUpdatesFromCache() throws IOException {
@@ -84,9 +273,12 @@ public void syncInitially() throws IOException {
         readUpdatesDir();
     }
 
-    public void sync(Collection<String> dirs) throws IOException {
+    public synchronized void sync(Collection<String> dirs) throws IOException {
         logger.info("Syncing updates dir");
         Map<String, HashedDir> newUpdatesDirMap = new HashMap<>(16);
+        Map<String, Map<String, CachedDigest>> oldHashCacheMap = cacheHashes ? getHashCache() : Map.of();
+        Map<String, Map<String, CachedDigest>> newHashCacheMap = new HashMap<>(16);
+        ForkJoinPool pool = hashThreads > 1 ? new ForkJoinPool(hashThreads) : null;
         try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(Path.of(updatesDir))) {
             for (final Path updateDir : dirStream) {
                 if (Files.isHidden(updateDir))
@@ -105,17 +297,35 @@ public void sync(Collection<String> dirs) throws IOException {
                     HashedDir hdir = updatesDirMap.get(name);
                     if (hdir != null) {
                         newUpdatesDirMap.put(name, hdir);
+                        Map<String, CachedDigest> hashes = oldHashCacheMap.get(name);
+                        if (hashes != null) {
+                            newHashCacheMap.put(name, hashes);
+                        }
                         continue;
                     }
                 }
 
                 // Sync and sign update dir
                 logger.info("Syncing '{}' update dir", name);
-                HashedDir updateHDir = new HashedDir(updateDir, null, true, true);
+                StatDigestCache digestCache = cacheHashes ? new StatDigestCache(oldHashCacheMap.get(name)) : null;
+                HashedDir updateHDir = new HashedDir(updateDir, null, true, true, pool, digestCache);
                 newUpdatesDirMap.put(name, updateHDir);
+                if (digestCache != null) {
+                    logger.debug("Update dir '{}': {} digests reused, {} computed", name, digestCache.hits, digestCache.misses);
+                    newHashCacheMap.put(name, digestCache.entries);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
             }
         }
         updatesDirMap = Collections.unmodifiableMap(newUpdatesDirMap);
+        compactUpdatesDirMap.keySet().retainAll(newUpdatesDirMap.values());
+        deltaCacheMap.clear();
+        historyMap.keySet().retainAll(newUpdatesDirMap.keySet());
+        newUpdatesDirMap.forEach(this::addToHistory);
+        syncPrecompressed(newUpdatesDirMap);
         if (cacheUpdates) {
             try {
                 writeCache(Path.of(cacheFile));
@@ -123,6 +333,18 @@ public void sync(Collection<String> dirs) throws IOException {
                 logger.error("Write updates cache failed", e);
             }
         }
+        if (cacheHashes) {
+            hashCacheMap = newHashCacheMap;
+            try {
+                writeHashCache(Path.of(hashCacheFile));
+            } catch (Throwable e) {
+                logger.error("Write hash cache failed", e);
+            }
+        }
+        if (server.nettyServerSocketHandler != null && server.nettyServerSocketHandler.nettyServer != null
+                && server.nettyServerSocketHandler.nettyServer.fileCache != null) {
+            server.nettyServerSocketHandler.nettyServer.fileCache.invalidate();
+        }
         server.modulesManager.invokeEvent(new LaunchServerUpdatesSyncEvent(server));
     }
 
@@ -131,6 +353,50 @@ public HashedDir getUpdatesDir(String updateName) {
         return updatesDirMap.get(updateName);
     }
 
+    @Override
+    public HashedDir getUpdatesDirSnapshot(String updateName, String version) {
+        Map<String, HashedDir> history = historyMap.get(updateName);
+        return history == null || version == null ? null : history.get(version);
+    }
+
+    @Override
+    public HashedDir.Delta getUpdatesDirDelta(String updateName, String fromVersion) {
+        HashedDir previous = getUpdatesDirSnapshot(updateName, fromVersion);
+        HashedDir current = updatesDirMap.get(updateName);
+        if (previous == null || current == null) {
+            return null;
+        }
+        String toVersion = UpdateRequestEvent.versionOf(current);
+        if (toVersion == null) {
+            return current.delta(previous);
+        }
+        // Both versions are in the key: a delta computed against a tree replaced by a concurrent sync
+        // must not be returned for the new one
+        return deltaCacheMap.computeIfAbsent(updateName + "@" + fromVersion + "->" + toVersion, k -> current.delta(previous));
+    }
+
+    @Override
+    public Path getPrecompressedFile(String digest, String encoding) {
+        if (!"gzip".equals(encoding) || !precompressedDigests.contains(digest)) {
+            return null;
+        }
+        return Path.of(precompressedDir).resolve(digest.concat(".gz"));
+    }
+
+    @Override
+    public String getCompactUpdatesDir(String updateName) throws IOException {
+        HashedDir dir = updatesDirMap.get(updateName);
+        if (dir == null) {
+            return null;
+        }
+        String compact = compactUpdatesDirMap.get(dir);
+        if (compact == null) {
+            compact = UpdateRequestEvent.encodeHashedDir(dir);
+            compactUpdatesDirMap.put(dir, compact);
+        }
+        return compact;
+    }
+
     private Path resolveUpdateName(String updateName) {
         if(updateName == null) {
             return Path.of(updatesDir);
@@ -183,4 +449,48 @@ public void create(String updateName) throws IOException {
         var path = resolveUpdateName(updateName);
         Files.createDirectories(path);
     }
+
+    private record CachedDigest(long size, long modified, String fileKey, byte[] digest) {
+        private CachedDigest(BasicFileAttributes attrs, byte[] digest) {
+            this(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKeyOf(attrs), digest);
+        }
+
+        private static String fileKeyOf(BasicFileAttributes attrs) {
+            Object fileKey = attrs.fileKey();
+            return fileKey == null ? "" : fileKey.toString();
+        }
+
+        private boolean isSame(BasicFileAttributes attrs) {
+            return size == attrs.size() && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKeyOf(attrs));
+        }
+    }
+
+    private static final class StatDigestCache implements HashedDir.DigestCache {
+        private final Map<String, CachedDigest> previous;
+        private final Map<String, CachedDigest> entries = new HashMap<>();
+        private int hits;
+        private int misses;
+
+        private StatDigestCache(Map<String, CachedDigest> previous) {
+            this.previous = previous == null ? Map.of() : previous;
+        }
+
+        @Override
+        public byte[] get(String path, BasicFileAttributes attrs) {
+            CachedDigest cached = previous.get(path);
+            if (cached == null || !cached.isSame(attrs)) {
+                misses++;
+                return null;
+            }
+            hits++;
+            entries.put(path, cached);
+            return cached.digest;
+        }
+
+        @Override
+        public void put(String path, BasicFileAttributes attrs, byte[] digest) {
+            entries.put(path, new CachedDigest(attrs, digest));
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package pro.gravit.launchserver.auth.updates;
 
+import pro.gravit.launcher.base.events.request.UpdateRequestEvent;
 import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.hasher.HashedFile;
 import pro.gravit.launchserver.LaunchServer;
 import pro.gravit.utils.ProviderMap;
 
@@ -36,6 +38,66 @@ public void sync() throws IOException {
 
     public abstract HashedDir getUpdatesDir(String updateName);
 
+    /**
+     * @return update dir in the compact form of {@link UpdateRequestEvent#compactHdir} or null if not found
+     */
+    public String getCompactUpdatesDir(String updateName) throws IOException {
+        HashedDir dir = getUpdatesDir(updateName);
+        return dir == null ? null : UpdateRequestEvent.encodeHashedDir(dir);
+    }
+
+    /**
+     * @return content version of the update dir or null if versioning is not available
+     */
+    public String getUpdatesDirVersion(String updateName) {
+        return UpdateRequestEvent.versionOf(getUpdatesDir(updateName));
+    }
+
+    /**
+     * @return previous state of the update dir with given version or null if it is not kept
+     */
+    public HashedDir getUpdatesDirSnapshot(String updateName, String version) {
+        return null;
+    }
+
+    /**
+     * @return changes from given version to the current state or null if that version is unknown
+     */
+    public HashedDir.Delta getUpdatesDirDelta(String updateName, String fromVersion) {
+        HashedDir previous = getUpdatesDirSnapshot(updateName, fromVersion);
+        HashedDir current = getUpdatesDir(updateName);
+        if (previous == null || current == null) {
+            return null;
+        }
+        return current.delta(previous);
+    }
+
+    /**
+     * @param path '/' separated path relative to the updates root, starting with the update name
+     * @return digest of the file from the last sync or null if unknown
+     */
+    public byte[] getFileDigest(String path) {
+        int index = path.indexOf('/');
+        if (index <= 0) {
+            return null;
+        }
+        HashedDir dir = getUpdatesDir(path.substring(0, index));
+        if (dir == null) {
+            return null;
+        }
+        HashedFile file = dir.findFile(path.substring(index + 1));
+        return file == null ? null : file.getDigest();
+    }
+
+    /**
+     * @param digest   hex SHA1 of the file content
+     * @param encoding content coding, such as "gzip"
+     * @return precompressed variant of the file or null if there is none
+     */
+    public Path getPrecompressedFile(String digest, String encoding) {
+        return null;
+    }
+
     public abstract void upload(String updateName, Map<String, Path> files, boolean deleteAfterUpload) throws IOException;
 
     public abstract Map<String, Path> download(String updateName, List<String> files);
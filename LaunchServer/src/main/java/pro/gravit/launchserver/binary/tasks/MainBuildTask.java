@@ -120,6 +120,7 @@ protected void initProps() {
             properties.put("runtimeconfig.runtimeEncryptKey", server.runtime.runtimeEncryptKey);
         }
         properties.put("launcher.certificatePinning", server.config.launcher.certificatePinning);
+        properties.put("launcher.binaryProtocol", server.config.launcher.binaryProtocol && !server.config.netty.disableBinaryProtocol);
         properties.put("runtimeconfig.passwordEncryptKey", server.runtime.passwordEncryptKey);
         String launcherSalt = SecurityHelper.randomStringToken();
         byte[] launcherSecureHash = SecurityHelper.digest(SecurityHelper.DigestAlgorithm.SHA256,
@@ -5,6 +5,9 @@
 import pro.gravit.launchserver.LaunchServer;
 import pro.gravit.launchserver.auth.AuthProviderPair;
 import pro.gravit.launchserver.command.Command;
+import pro.gravit.launchserver.socket.ExecutorGroup;
+import pro.gravit.launchserver.socket.OverloadController;
+import pro.gravit.launchserver.socket.WebSocketService;
 import pro.gravit.utils.command.CommandHandler;
 import pro.gravit.utils.helper.JVMHelper;
 
@@ -43,6 +46,20 @@ public void invoke(String... args) {
         logger.info("Commands: {}({} categories)", commands, server.commandHandler.getCategories().size() + 1);
         for (AuthProviderPair pair : server.config.auth.values()) {
         }
+        if (server.nettyServerSocketHandler != null && server.nettyServerSocketHandler.nettyServer != null) {
+            OverloadController overloadController = server.nettyServerSocketHandler.nettyServer.service.getOverloadController();
+            if (overloadController != null) {
+                logger.info("Requests in flight: {} | overloaded: {} | shed: {}", overloadController.getInFlight(), overloadController.isOverloaded(), overloadController.getShedCount());
+            }
+            WebSocketService.ConnectionMemoryStats memoryStats = server.nettyServerSocketHandler.nettyServer.service.getConnectionMemoryStats();
+            logger.info("Connections: {} | used heap / connections: {} KB, netty buffers / connections: {} KB (upper bounds)", memoryStats.connections(),
+                    memoryStats.usedHeapShareUpperBound() / 1024, memoryStats.bufferShareUpperBound() / 1024);
+            for (ExecutorGroup.Stats stats : server.nettyServerSocketHandler.nettyServer.service.getExecutorGroupStats()) {
+                logger.info("Executor group {}: running {} | queued {} | completed {} | rejected {} | wait avg {} ms max {} ms",
+                        stats.name(), stats.running(), stats.queued(), stats.completed(), stats.rejected(), stats.averageWaitMillis(), stats.maxWaitMillis());
+            }
+            logger.info("Channel indexes: {} fixed", server.nettyServerSocketHandler.nettyServer.service.checkIndexes());
+        }
 
     }
 }
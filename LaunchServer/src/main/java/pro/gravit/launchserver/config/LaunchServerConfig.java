@@ -73,6 +73,10 @@ public static LaunchServerConfig getDefault(LaunchServer.LaunchServerEnv env) {
         newConfig.netty.performance.bossThread = 2;
         newConfig.netty.performance.workerThread = 8;
         newConfig.netty.performance.schedulerThread = 2;
+        newConfig.netty.performance.executorGroups.put("database", new NettyExecutorGroupConfig(32, 4096,
+                new ArrayList<>(List.of("auth", "checkServer", "joinServer", "refreshToken", "restore",
+                        "profileByUsername", "profileByUUID", "batchProfileByUsername"))));
+        newConfig.netty.performance.overload.enabled = true;
 
         newConfig.launcher = new LauncherConf();
         newConfig.launcher.compress = true;
@@ -254,6 +258,7 @@ public static class LauncherConf {
         public boolean stripLineNumbers;
         public boolean deleteTempFiles;
         public boolean certificatePinning;
+        public boolean binaryProtocol;
         public boolean encryptRuntime;
         public List<String> customJvmOptions = new ArrayList<>();
         public int memoryLimit = 256;
@@ -263,6 +268,7 @@ public static class NettyConfig {
         public boolean fileServerEnabled;
         public boolean ipForwarding;
         public boolean disableWebApiInterface;
+        public boolean disableBinaryProtocol;
         public boolean showHiddenFiles;
         public boolean sendProfileUpdatesEvent = true;
         public String launcherURL;
@@ -273,6 +279,7 @@ public static class NettyConfig {
         public NettyPerformanceConfig performance;
 
         public NettySecurityConfig security = new NettySecurityConfig();
+        public NettyFileCacheConfig fileCache = new NettyFileCacheConfig();
         public NettyBindAddress[] binds;
         public LogLevel logLevel = LogLevel.DEBUG;
     }
@@ -284,13 +291,72 @@ public static class NettyPerformanceConfig {
         public int schedulerThread;
         public int maxWebSocketRequestBytes = 10 * 1024 * 1024;
         public boolean disableThreadSafeClientObject;
+        public boolean disableResponseCache;
+        /**
+         * Interval of WebSocket pings sent by the shared keepalive timer, 0 to disable
+         */
+        public int pingIntervalSeconds = 30;
+        /**
+         * WebSocket connections that send nothing, including pongs, for this time are closed, 0 to disable
+         */
+        public int idleTimeoutSeconds = 90;
         public NettyExecutorType executorType = NettyExecutorType.VIRTUAL_THREADS;
+        /**
+         * Separate executors for the listed response types, other requests use {@link #executorType}
+         */
+        public Map<String, NettyExecutorGroupConfig> executorGroups = new HashMap<>();
+        public NettyOverloadConfig overload = new NettyOverloadConfig();
+        public NettyCompressionConfig compression = new NettyCompressionConfig();
 
         public enum NettyExecutorType {
             NONE, DEFAULT, WORK_STEAL, VIRTUAL_THREADS
         }
     }
 
+    public static class NettyOverloadConfig {
+        /**
+         * Enabled only in new configs, existing installations keep accepting every request
+         */
+        public boolean enabled = false;
+        public int maxInFlight = 4096;
+        public long targetQueueDelayMillis = 500;
+        public long intervalMillis = 1000;
+        public long retryAfterMillis = 5000;
+        public List<String> lowPriorityResponses = new ArrayList<>(List.of("auth", "profiles", "update", "launcher",
+                "batchProfileByUsername", "crashReport", "hardwareReport", "securityReport"));
+    }
+
+    public static class NettyCompressionConfig {
+        public boolean enabled = true;
+        public int level = 6;
+        /**
+         * Smaller frames are sent uncompressed. The deflater of a connection is allocated with its first
+         * compressed frame, so connections that exchange only small messages never hold zlib state
+         */
+        public int minFrameBytes = 1024;
+        /**
+         * Ask clients not to keep the compression context between messages, so the server inflater is freed
+         * after each message instead of living as long as the connection
+         */
+        public boolean noContextTakeover = true;
+    }
+
+    public static class NettyExecutorGroupConfig {
+        public NettyPerformanceConfig.NettyExecutorType type = NettyPerformanceConfig.NettyExecutorType.VIRTUAL_THREADS;
+        public int maxConcurrency = 32;
+        public int maxQueue = 1024;
+        public List<String> responses = new ArrayList<>();
+
+        public NettyExecutorGroupConfig() {
+        }
+
+        public NettyExecutorGroupConfig(int maxConcurrency, int maxQueue, List<String> responses) {
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueue = maxQueue;
+            this.responses = responses;
+        }
+    }
+
     public static class NettyBindAddress {
         public String address;
         public int port;
@@ -301,6 +367,12 @@ public NettyBindAddress(String address, int port) {
         }
     }
 
+    public static class NettyFileCacheConfig {
+        public boolean enabled = true;
+        public int maxFileSize = 64 * 1024;
+        public long capacity = 64 * 1024 * 1024;
+    }
+
     public static class NettySecurityConfig {
         public long hardwareTokenExpire = HOURS.toSeconds(8);
         public long publicKeyTokenExpire = HOURS.toSeconds(8);
@@ -9,6 +9,7 @@
 import pro.gravit.launcher.base.events.request.AuthRequestEvent;
 import pro.gravit.launcher.base.profiles.ClientProfile;
 import pro.gravit.launcher.base.profiles.PlayerProfile;
+import pro.gravit.launcher.base.profiles.Texture;
 import pro.gravit.launcher.base.request.auth.AuthRequest;
 import pro.gravit.launcher.base.request.auth.password.*;
 import pro.gravit.launchserver.LaunchServer;
@@ -218,6 +219,50 @@ public PlayerProfile getPlayerProfile(AuthProviderPair pair, String username, Cl
         return new PlayerProfile(uuid, username, new HashMap<>(), new HashMap<>());
     }
 
+    /**
+     * Same as {@link #getPlayerProfile(AuthProviderPair, String)} for many users, with one lookup in the core provider
+     * and one request to the texture provider
+     *
+     * @return profiles in the order of usernames, null for not found
+     */
+    public List<PlayerProfile> getPlayerProfiles(AuthProviderPair pair, List<String> usernames) {
+        List<User> users = pair.core.getUsersByUsernames(usernames);
+        List<PlayerProfile> profiles = new ArrayList<>(users.size());
+        List<TextureProvider.AssetsRequest> requests = new ArrayList<>();
+        List<Integer> requestIndexes = new ArrayList<>();
+        for (User user : users) {
+            if (user == null || user.getUUID() == null) {
+                profiles.add(null);
+            } else if (user instanceof UserSupportTextures userSupportTextures) {
+                profiles.add(new PlayerProfile(user.getUUID(), user.getUsername(), userSupportTextures.getUserAssets(), getProperties(user)));
+            } else {
+                requestIndexes.add(profiles.size());
+                requests.add(new TextureProvider.AssetsRequest(user.getUUID(), user.getUsername(), ""));
+                profiles.add(null);
+            }
+        }
+        if (requests.isEmpty()) {
+            return profiles;
+        }
+        if (pair.textureProvider == null) {
+            throw new NullPointerException("TextureProvider not found");
+        }
+        List<Map<String, Texture>> assets = pair.textureProvider.getAssets(requests);
+        for (int i = 0; i < requests.size(); ++i) {
+            int index = requestIndexes.get(i);
+            User user = users.get(index);
+            profiles.set(index, new PlayerProfile(user.getUUID(), user.getUsername(), assets.get(i), getProperties(user)));
+        }
+        return profiles;
+    }
+
+    private static Map<String, String> getProperties(User user) {
+        if (user instanceof UserSupportProperties userSupportProperties) {
+            return userSupportProperties.getProperties();
+        }
+        return new HashMap<>();
+    }
+
     public PlayerProfile getPlayerProfile(AuthProviderPair pair, UUID uuid) {
         return getPlayerProfile(pair, uuid, null);
     }
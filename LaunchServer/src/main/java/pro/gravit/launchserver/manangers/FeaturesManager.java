@@ -1,6 +1,7 @@
 package pro.gravit.launchserver.manangers;
 
 import pro.gravit.launchserver.LaunchServer;
+import pro.gravit.launchserver.socket.response.BatchResponse;
 import pro.gravit.utils.Version;
 
 import java.util.HashMap;
@@ -8,11 +9,13 @@
 
 public class FeaturesManager {
     private final Map<String, String> map;
+    private volatile int version;
 
     public FeaturesManager(LaunchServer server) {
         map = new HashMap<>();
         addFeatureInfo("version", Version.getVersion().getVersionString());
         addFeatureInfo("projectName", server.config.projectName);
+        addFeatureInfo("batch", String.valueOf(BatchResponse.MAX_REQUESTS));
     }
 
     public Map<String, String> getMap() {
@@ -25,9 +28,19 @@ public String getFeatureInfo(String name) {
 
     public void addFeatureInfo(String name, String featureInfo) {
         map.put(name, featureInfo);
+        version++;
     }
 
     public String removeFeatureInfo(String name) {
-        return map.remove(name);
+        String result = map.remove(name);
+        version++;
+        return result;
+    }
+
+    /**
+     * @return number that changes with every modification of features
+     */
+    public int getVersion() {
+        return version;
     }
 }
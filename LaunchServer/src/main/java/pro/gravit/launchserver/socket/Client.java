@@ -15,7 +15,7 @@
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Client {
-    ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ReadWriteLock lock;
     public String auth_id;
     public long timestamp;
     public AuthResponse.ConnectTypes type;
@@ -60,7 +60,7 @@ public void updateAuth(LaunchServer server) {
 
     @SuppressWarnings("unchecked")
     public <T> T getProperty(String name) {
-        if (properties == null) properties = new HashMap<>();
+        if (properties == null) return null;
         return (T) properties.get(name);
     }
 
@@ -71,7 +71,7 @@ public <T> void setProperty(String name, T object) {
 
     @SuppressWarnings("unchecked")
     public <T> T getStaticProperty(String name) {
-        if (staticProperties == null) staticProperties = new HashMap<>();
+        if (staticProperties == null) return null;
         return (T) staticProperties.get(name);
     }
 
@@ -89,11 +89,26 @@ public pro.gravit.launchserver.auth.core.User getUser() {
     }
 
     public Lock readLock() {
-        return lock.readLock();
+        return getLock().readLock();
     }
 
     public Lock writeLock() {
-        return lock.writeLock();
+        return getLock().writeLock();
+    }
+
+    // Most connections never run a locking request, so the lock is created on first use
+    private ReadWriteLock getLock() {
+        ReadWriteLock result = lock;
+        if (result == null) {
+            synchronized (this) {
+                result = lock;
+                if (result == null) {
+                    result = new ReentrantReadWriteLock();
+                    lock = result;
+                }
+            }
+        }
+        return result;
     }
 
     public static class TrustLevel {
@@ -0,0 +1,149 @@
+package pro.gravit.launchserver.socket;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pro.gravit.launchserver.config.LaunchServerConfig.NettyPerformanceConfig.NettyExecutorType;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Bulkhead for request processing: an executor with its own concurrency limit and bounded queue,
+ * so one slow kind of request can't take all the threads from the others
+ */
+public class ExecutorGroup {
+    private transient final Logger logger = LogManager.getLogger();
+    public final String name;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int maxQueue;
+    private final LongConsumer waitListener;
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param maxConcurrency tasks running at once, 0 for unlimited
+     * @param maxQueue       tasks waiting for a free slot, 0 for unlimited
+     * @param waitListener   receives the queue wait of every started task in nanoseconds, may be null
+     */
+    public ExecutorGroup(String name, NettyExecutorType type, int maxConcurrency, int maxQueue, LongConsumer waitListener) {
+        this.name = name;
+        this.executor = switch (type) {
+            case NONE -> null;
+            case DEFAULT -> Executors.newCachedThreadPool();
+            case WORK_STEAL -> Executors.newWorkStealingPool();
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+        this.maxConcurrency = maxConcurrency <= 0 ? Integer.MAX_VALUE : maxConcurrency;
+        this.maxQueue = maxQueue <= 0 ? Integer.MAX_VALUE : maxQueue;
+        this.waitListener = waitListener;
+    }
+
+    /**
+     * Runs the task in place for an inline group, otherwise starts or queues it
+     *
+     * @return false if the queue is full and the task was rejected
+     */
+    public boolean submit(Runnable runnable) {
+        Task task = new Task(runnable, System.nanoTime());
+        if (executor == null) {
+            run(task);
+            return true;
+        }
+        if (tryAcquire()) {
+            start(task);
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        queue.add(task);
+        // A slot may have been released before the task was queued
+        drain();
+        return true;
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            Task task = queue.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            start(task);
+        }
+    }
+
+    private void start(Task task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    run(task);
+                } finally {
+                    running.decrementAndGet();
+                    drain();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.decrementAndGet();
+            rejected.increment();
+            logger.error("Executor group {} rejected a task", name, e);
+        }
+    }
+
+    private void run(Task task) {
+        long wait = System.nanoTime() - task.created;
+        totalWaitNanos.add(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        if (waitListener != null) {
+            waitListener.accept(wait);
+        }
+        try {
+            task.runnable.run();
+        } finally {
+            completed.increment();
+        }
+    }
+
+    public Stats getStats() {
+        long completedCount = completed.sum();
+        return new Stats(name, running.get(), queued.get(), completedCount, rejected.sum(),
+                completedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / completedCount),
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public record Stats(String name, int running, int queued, long completed, long rejected, long averageWaitMillis, long maxWaitMillis) {
+    }
+
+    private record Task(Runnable runnable, long created) {
+    }
+}
@@ -0,0 +1,70 @@
+package pro.gravit.launchserver.socket;
+
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings all WebSocket connections from one shared timer instead of a scheduled task per channel.
+ * The interval is split into one second slices, every tick pings the channels of one slice,
+ * so the pings are spread over the interval rather than sent in a single burst
+ */
+public class KeepAliveSweeper implements TimerTask, AutoCloseable {
+    private static final long TICK_MILLIS = 1000;
+    private transient final Logger logger = LogManager.getLogger();
+    private final ChannelGroup channels;
+    private final Timer timer;
+    private final int slices;
+    private int currentSlice;
+    private volatile boolean closed;
+
+    public KeepAliveSweeper(ChannelGroup channels, int intervalSeconds) {
+        this.channels = channels;
+        this.slices = Math.max(1, (int) (TimeUnit.SECONDS.toMillis(intervalSeconds) / TICK_MILLIS));
+        this.timer = new HashedWheelTimer(r -> {
+            Thread thread = new Thread(r, "KeepAliveSweeper");
+            thread.setDaemon(true);
+            return thread;
+        }, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void start() {
+        timer.newTimeout(this, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run(Timeout timeout) {
+        try {
+            int slice = currentSlice;
+            currentSlice = (slice + 1) % slices;
+            for (Channel channel : channels) {
+                if (Math.floorMod(channel.id().hashCode(), slices) == slice && channel.isActive()) {
+                    channel.writeAndFlush(new PingWebSocketFrame(), channel.voidPromise());
+                }
+            }
+        } catch (Throwable e) {
+            logger.error("Keepalive sweep failed", e);
+        }
+        if (!closed) {
+            try {
+                timer.newTimeout(this, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException ignored) {
+                // Stopped concurrently
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        timer.stop();
+    }
+}
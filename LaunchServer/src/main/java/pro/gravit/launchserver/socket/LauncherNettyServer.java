@@ -10,7 +10,10 @@
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
-import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.apache.logging.log4j.LogManager;
@@ -20,6 +23,7 @@
 import pro.gravit.launchserver.socket.handlers.NettyIpForwardHandler;
 import pro.gravit.launchserver.socket.handlers.NettyWebAPIHandler;
 import pro.gravit.launchserver.socket.handlers.WebSocketFrameHandler;
+import pro.gravit.launchserver.socket.handlers.fileserver.FileCache;
 import pro.gravit.launchserver.socket.handlers.fileserver.FileServerHandler;
 import pro.gravit.utils.BiHookSet;
 
@@ -32,6 +36,8 @@ public class LauncherNettyServer implements AutoCloseable {
     public final EventLoopGroup bossGroup;
     public final EventLoopGroup workerGroup;
     public final WebSocketService service;
+    public final FileCache fileCache;
+    public final KeepAliveSweeper keepAliveSweeper;
     public final BiHookSet<NettyConnectContext, SocketChannel> pipelineHook = new BiHookSet<>();
 
     public LauncherNettyServer(LaunchServer server) {
@@ -48,6 +54,18 @@ public LauncherNettyServer(LaunchServer server) {
         workerGroup = NettyObjectFactory.newEventLoopGroup(config.performance.workerThread, "LauncherNettyServer.workerGroup");
         serverBootstrap = new ServerBootstrap();
         service = new WebSocketService(new DefaultChannelGroup(GlobalEventExecutor.INSTANCE), server);
+        if (config.performance.pingIntervalSeconds > 0) {
+            keepAliveSweeper = new KeepAliveSweeper(service.channels, config.performance.pingIntervalSeconds);
+            keepAliveSweeper.start();
+        } else {
+            keepAliveSweeper = null;
+        }
+        fileCache = config.fileCache != null && config.fileCache.enabled ? new FileCache(config.fileCache.maxFileSize, config.fileCache.capacity) : null;
+        // Stateless handlers are shared by all channels
+        NettyIpForwardHandler ipForwardHandler = new NettyIpForwardHandler();
+        NettyWebAPIHandler webAPIHandler = new NettyWebAPIHandler();
+        FileServerHandler fileServerHandler = new FileServerHandler(server.updatesDir, true, config.showHiddenFiles, server.config.updatesProvider, fileCache);
+        PerMessageDeflateServerExtensionHandshaker compressionHandshaker = makeCompressionHandshaker(config.performance.compression);
         serverBootstrap.group(bossGroup, workerGroup)
                 .channelFactory(NettyObjectFactory.getServerSocketChannelFactory())
                 .handler(new LoggingHandler(config.logLevel))
@@ -56,23 +74,45 @@ public LauncherNettyServer(LaunchServer server) {
                     public void initChannel(SocketChannel ch) {
                         ChannelPipeline pipeline = ch.pipeline();
                         NettyConnectContext context = new NettyConnectContext();
+                        NettyConnectContext.set(ch, context);
                         //p.addLast(new LoggingHandler(LogLevel.INFO));
                         pipeline.addLast("http-codec", new HttpServerCodec());
                         pipeline.addLast("http-codec-compressor", new HttpObjectAggregator(server.config.netty.performance.maxWebSocketRequestBytes));
                         if (server.config.netty.ipForwarding)
-                            pipeline.addLast("forward-http", new NettyIpForwardHandler(context));
-                        pipeline.addLast("websock-comp", new WebSocketServerCompressionHandler());
-                        pipeline.addLast("websock-codec", new WebSocketServerProtocolHandler(WEBSOCKET_PATH, null, true, server.config.netty.performance.maxWebSocketRequestBytes));
+                            pipeline.addLast("forward-http", ipForwardHandler);
+                        if (compressionHandshaker != null)
+                            pipeline.addLast("websock-comp", new WebSocketServerExtensionHandler(compressionHandshaker));
+                        pipeline.addLast("websock-codec", new WebSocketServerProtocolHandler(WEBSOCKET_PATH, config.disableBinaryProtocol ? null : WebSocketService.BINARY_SUBPROTOCOL, true, server.config.netty.performance.maxWebSocketRequestBytes));
                         if (!server.config.netty.disableWebApiInterface)
-                            pipeline.addLast("webapi", new NettyWebAPIHandler(context));
+                            pipeline.addLast("webapi", webAPIHandler);
                         if (server.config.netty.fileServerEnabled)
-                            pipeline.addLast("fileserver", new FileServerHandler(server.updatesDir, true, config.showHiddenFiles));
+                            pipeline.addLast("fileserver", fileServerHandler);
                         pipeline.addLast("launchserver", new WebSocketFrameHandler(context, server, service));
                         pipelineHook.hook(context, ch);
                     }
                 });
     }
 
+    private static PerMessageDeflateServerExtensionHandshaker makeCompressionHandshaker(LaunchServerConfig.NettyCompressionConfig config) {
+        if (config == null || !config.enabled) {
+            return null;
+        }
+        int minFrameBytes = config.minFrameBytes;
+        WebSocketExtensionFilterProvider filterProvider = new WebSocketExtensionFilterProvider() {
+            @Override
+            public WebSocketExtensionFilter encoderFilter() {
+                return frame -> frame.content().readableBytes() < minFrameBytes;
+            }
+
+            @Override
+            public WebSocketExtensionFilter decoderFilter() {
+                return WebSocketExtensionFilter.NEVER_SKIP;
+            }
+        };
+        return new PerMessageDeflateServerExtensionHandshaker(config.level, true, 15,
+                config.noContextTakeover, config.noContextTakeover, filterProvider);
+    }
+
     public void bind(InetSocketAddress address) {
         serverBootstrap.bind(address);
     }
@@ -81,5 +121,12 @@ public void bind(InetSocketAddress address) {
     public void close() {
         workerGroup.shutdownGracefully(2, 5, TimeUnit.SECONDS);
         bossGroup.shutdownGracefully(2, 5, TimeUnit.SECONDS);
+        if (keepAliveSweeper != null) {
+            keepAliveSweeper.close();
+        }
+        service.close();
+        if (fileCache != null) {
+            fileCache.invalidate();
+        }
     }
 }
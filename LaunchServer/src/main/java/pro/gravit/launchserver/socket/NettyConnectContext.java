@@ -1,5 +1,20 @@
 package pro.gravit.launchserver.socket;
 
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
 public class NettyConnectContext {
+    private static final AttributeKey<NettyConnectContext> KEY = AttributeKey.valueOf("launchserver.connectContext");
     public String ip = null;
+
+    /**
+     * Context of the connection, for handlers shared between channels
+     */
+    public static NettyConnectContext get(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    public static void set(Channel channel, NettyConnectContext context) {
+        channel.attr(KEY).set(context);
+    }
 }
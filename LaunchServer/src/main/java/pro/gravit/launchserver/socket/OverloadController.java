@@ -0,0 +1,80 @@
+package pro.gravit.launchserver.socket;
+
+import pro.gravit.launchserver.config.LaunchServerConfig.NettyOverloadConfig;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for WebSocket requests. The server counts as overloaded when too many requests are in flight
+ * or when even the fastest request of the last interval waited in a queue longer than the target.
+ * Low priority requests are rejected while overloaded, so the rest keep acceptable latency
+ */
+public class OverloadController {
+    private final int maxInFlight;
+    private final long targetSojournNanos;
+    private final long intervalNanos;
+    private final Set<String> lowPriority;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong intervalStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong intervalMinSojourn = new AtomicLong(Long.MAX_VALUE);
+    private final LongAdder shed = new LongAdder();
+    private volatile boolean sojournOverloaded;
+
+    public OverloadController(NettyOverloadConfig config) {
+        this.maxInFlight = config.maxInFlight <= 0 ? Integer.MAX_VALUE : config.maxInFlight;
+        this.targetSojournNanos = TimeUnit.MILLISECONDS.toNanos(config.targetQueueDelayMillis);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.intervalMillis);
+        this.lowPriority = config.lowPriorityResponses == null ? Set.of() : new HashSet<>(config.lowPriorityResponses);
+    }
+
+    /**
+     * Registers a new request unless it should be shed. Admitted requests must be finished with {@link #complete()}
+     *
+     * @return false if the request is rejected
+     */
+    public boolean tryAdmit(String type) {
+        if (lowPriority.contains(type) && isOverloaded()) {
+            shed.increment();
+            return false;
+        }
+        inFlight.incrementAndGet();
+        return true;
+    }
+
+    public void complete() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Records time the request spent in a queue before it started
+     */
+    public void recordSojourn(long nanos) {
+        intervalMinSojourn.accumulateAndGet(nanos, Math::min);
+        long now = System.nanoTime();
+        long start = intervalStart.get();
+        if (now - start >= intervalNanos && intervalStart.compareAndSet(start, now)) {
+            sojournOverloaded = intervalMinSojourn.getAndSet(Long.MAX_VALUE) > targetSojournNanos;
+        }
+    }
+
+    public boolean isOverloaded() {
+        if (inFlight.get() >= maxInFlight) {
+            return true;
+        }
+        // The flag is left from the last finished interval, don't trust it when nothing was measured since
+        return sojournOverloaded && System.nanoTime() - intervalStart.get() < 2 * intervalNanos;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
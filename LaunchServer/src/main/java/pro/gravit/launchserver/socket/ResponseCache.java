@@ -0,0 +1,105 @@
+package pro.gravit.launchserver.socket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.utils.CborJsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Encoded events shared by all clients with the same visibility key. Events are stored without requestUUID,
+ * it is prepended to the cached object body for each request, so the event is serialized once per key
+ */
+public class ResponseCache {
+    private static final int MAX_ENTRIES = 256;
+    private final Map<String, ByteBuf> map = new HashMap<>();
+    /**
+     * Incremented by {@link #invalidate()}, so an event created before it is not stored after it
+     */
+    private long generation;
+
+    /**
+     * @param key      response type and everything the event depends on
+     * @param binary   CBOR instead of JSON text
+     * @param supplier creates the event on a cache miss
+     * @param encoder  encodes the event into a frame in the requested protocol
+     */
+    public WebSocketFrame get(String key, boolean binary, UUID requestUUID, Supplier<RequestEvent> supplier, Function<RequestEvent, WebSocketFrame> encoder) {
+        String fullKey = binary ? key + "#cbor" : key;
+        long bodyGeneration;
+        ByteBuf body;
+        synchronized (this) {
+            bodyGeneration = generation;
+            body = getBody(fullKey);
+        }
+        if (body == null) {
+            RequestEvent event = supplier.get();
+            event.requestUUID = null;
+            WebSocketFrame frame = encoder.apply(event);
+            body = putBody(fullKey, frame.content(), bodyGeneration);
+        }
+        if (requestUUID == null) {
+            return binary ? new BinaryWebSocketFrame(body) : new TextWebSocketFrame(body);
+        }
+        // Both encodings of an object start with a single byte, the requestUUID property is inserted after it
+        ByteBuf content = Unpooled.wrappedBuffer(prefix(binary, requestUUID), body.slice(body.readerIndex() + 1, body.readableBytes() - 1));
+        return binary ? new BinaryWebSocketFrame(content) : new TextWebSocketFrame(content);
+    }
+
+    private synchronized ByteBuf getBody(String key) {
+        ByteBuf body = map.get(key);
+        // Every frame needs its own reader index over the shared content
+        return body == null ? null : body.retainedDuplicate();
+    }
+
+    /**
+     * @return body for one frame, the passed body itself if it was created before the last invalidation
+     */
+    private synchronized ByteBuf putBody(String key, ByteBuf body, long bodyGeneration) {
+        if (bodyGeneration != generation) {
+            return body;
+        }
+        if (map.size() >= MAX_ENTRIES) {
+            invalidate();
+        }
+        ByteBuf old = map.put(key, body);
+        if (old != null) {
+            old.release();
+        }
+        return body.retainedDuplicate();
+    }
+
+    private static ByteBuf prefix(boolean binary, UUID requestUUID) {
+        if (!binary) {
+            return Unpooled.copiedBuffer("{\"requestUUID\":\"" + requestUUID + "\",", StandardCharsets.UTF_8);
+        }
+        ByteBuf buf = Unpooled.buffer(64);
+        try (CborJsonWriter writer = new CborJsonWriter(new ByteBufOutputStream(buf))) {
+            writer.beginObject();
+            writer.name("requestUUID");
+            writer.value(requestUUID.toString());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return buf;
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        for (ByteBuf body : map.values()) {
+            body.release();
+        }
+        map.clear();
+    }
+}
@@ -1,11 +1,24 @@
 package pro.gravit.launchserver.socket;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.group.ChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pro.gravit.launcher.base.Launcher;
@@ -15,7 +28,9 @@
 import pro.gravit.launcher.base.request.WebSocketEvent;
 import pro.gravit.launchserver.LaunchServer;
 import pro.gravit.launchserver.socket.handlers.WebSocketFrameHandler;
+import pro.gravit.launchserver.socket.response.BatchResponse;
 import pro.gravit.launchserver.socket.response.SimpleResponse;
+import pro.gravit.launchserver.socket.response.UnknownResponse;
 import pro.gravit.launchserver.socket.response.WebSocketServerResponse;
 import pro.gravit.launchserver.socket.response.auth.*;
 import pro.gravit.launchserver.socket.response.cabinet.AssetUploadInfoResponse;
@@ -34,15 +49,28 @@
 import pro.gravit.launchserver.socket.response.update.LauncherResponse;
 import pro.gravit.launchserver.socket.response.update.UpdateResponse;
 import pro.gravit.utils.BiHookSet;
+import pro.gravit.utils.CborJsonWriter;
+import pro.gravit.utils.CborReader;
 import pro.gravit.utils.HookSet;
 import pro.gravit.utils.ProviderMap;
+import pro.gravit.utils.UniversalJsonAdapter;
 import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.JVMHelper;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
-import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 public class WebSocketService {
     public static final ProviderMap<WebSocketServerResponse> providers = new ProviderMap<>();
@@ -51,21 +79,56 @@ public class WebSocketService {
     public final HookSet<WebSocketRequestContext> hookBeforeExecute = new HookSet<>();
     public final HookSet<WebSocketRequestContext> hookComplete = new HookSet<>();
     public final BiHookSet<Channel, Object> hookSend = new BiHookSet<>();
+    private static final AttributeKey<IndexedKeys> INDEXED_KEYS = AttributeKey.valueOf("launchserver.indexedKeys");
+    /**
+     * WebSocket subprotocol for requests and events in CBOR instead of JSON text
+     */
+    public static final String BINARY_SUBPROTOCOL = "cbor";
+    private static final AttributeKey<Boolean> BINARY = AttributeKey.valueOf("launchserver.binary");
+    private final Map<UUID, Channel> connectUuidIndex = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Channel>> userUuidIndex = new ConcurrentHashMap<>();
+    private final Map<String, Set<Channel>> ipIndex = new ConcurrentHashMap<>();
+    /**
+     * Open channels using {@link #BINARY_SUBPROTOCOL}, broadcasts skip CBOR encoding when there are none
+     */
+    private final AtomicInteger binaryChannels = new AtomicInteger();
     private final LaunchServer server;
     private final Gson gson;
+    private final UniversalJsonAdapter<WebSocketServerResponse> requestAdapter = new UniversalJsonAdapter<>(providers, UnknownResponse.class);
     private transient final Logger logger = LogManager.getLogger();
-    private ExecutorService executors;
+    private final ExecutorGroup defaultExecutorGroup;
+    private final Map<String, ExecutorGroup> executorGroups = new HashMap<>();
+    private final OverloadController overloadController;
+    /**
+     * Null if disabled by {@code netty.performance.disableResponseCache}
+     */
+    public final ResponseCache responseCache;
+    private final long retryAfterMillis;
 
     public WebSocketService(ChannelGroup channels, LaunchServer server) {
         this.channels = channels;
         this.server = server;
         this.gson = Launcher.gsonManager.gson;
-        executors = switch (server.config.netty.performance.executorType) {
-            case NONE -> null;
-            case DEFAULT -> Executors.newCachedThreadPool();
-            case WORK_STEAL -> Executors.newWorkStealingPool();
-            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
-        };
+        var performance = server.config.netty.performance;
+        responseCache = performance.disableResponseCache ? null : new ResponseCache();
+        if (performance.overload != null && performance.overload.enabled) {
+            overloadController = new OverloadController(performance.overload);
+            retryAfterMillis = performance.overload.retryAfterMillis;
+        } else {
+            overloadController = null;
+            retryAfterMillis = 0;
+        }
+        LongConsumer waitListener = overloadController == null ? null : overloadController::recordSojourn;
+        defaultExecutorGroup = new ExecutorGroup("default", performance.executorType, 0, 0, waitListener);
+        if (performance.executorGroups != null) {
+            for (var e : performance.executorGroups.entrySet()) {
+                var config = e.getValue();
+                ExecutorGroup group = new ExecutorGroup(e.getKey(), config.type, config.maxConcurrency, config.maxQueue, waitListener);
+                for (String type : config.responses) {
+                    executorGroups.put(type, group);
+                }
+            }
+        }
     }
 
     public static void registerResponses() {
@@ -96,6 +159,7 @@ public static void registerResponses() {
         providers.register("assetUploadInfo", AssetUploadInfoResponse.class);
         providers.register("getConnectUUID", GetConnectUUIDResponse.class);
         providers.register("crashReport", CrashReportResponse.class);
+        providers.register("batch", BatchResponse.class);
     }
 
     public static String getIPFromContext(ChannelHandlerContext ctx) {
@@ -124,13 +188,26 @@ public void forEachActiveChannels(BiConsumer<Channel, WebSocketFrameHandler> cal
     }
 
     public void process(ChannelHandlerContext ctx, TextWebSocketFrame frame, Client client, String ip, UUID connectUUID) {
-        String request = frame.text();
-        // logger.debug("Received request: {}", request);
+        // Request text is decoded only for hooks, parsing reads the frame content directly
+        String request = hasRequestHooks() ? frame.text() : null;
+        process(ctx, request, () -> parseRequest(frame), client, ip, connectUUID);
+    }
+
+    /**
+     * Processes a request in CBOR, sent over a connection with the {@link #BINARY_SUBPROTOCOL} subprotocol
+     */
+    public void processBinary(ChannelHandlerContext ctx, ByteBuf content, Client client, String ip, UUID connectUUID) throws IOException {
+        JsonElement tree = CborReader.parse(new ByteBufInputStream(content.duplicate()));
+        String request = hasRequestHooks() ? tree.toString() : null;
+        process(ctx, request, () -> gson.fromJson(tree, WebSocketServerResponse.class), client, ip, connectUUID);
+    }
+
+    private void process(ChannelHandlerContext ctx, String request, Supplier<WebSocketServerResponse> parser, Client client, String ip, UUID connectUUID) {
         WebSocketRequestContext context = new WebSocketRequestContext(ctx, request, client, ip, connectUUID);
         if(hookBeforeParsing.hook(context)) {
             return;
         }
-        WebSocketServerResponse response = gson.fromJson(request, WebSocketServerResponse.class);
+        WebSocketServerResponse response = parser.get();
         context.response = response;
         if (response == null) {
             RequestEvent event = new ErrorRequestEvent("This type of request is not supported");
@@ -138,13 +215,117 @@ public void process(ChannelHandlerContext ctx, TextWebSocketFrame frame, Client
             sendObject(ctx.channel(), event, WebSocketEvent.class);
             return;
         }
+        submit(context, response, client, ip, null);
+    }
+
+    /**
+     * Admits the request and runs it in the executor group of its type
+     *
+     * @param onFinish called after the request is finished or rejected, may be null
+     */
+    private void submit(WebSocketRequestContext context, WebSocketServerResponse response, Client client, String ip, Runnable onFinish) {
         var safeStatus = server.config.netty.performance.disableThreadSafeClientObject ?
                 WebSocketServerResponse.ThreadSafeStatus.NONE : response.getThreadSafeStatus();
-        if(executors == null) {
-            process(safeStatus, client, ip, context, response);
-        } else {
-            executors.submit(() -> process(safeStatus, client, ip, context, response));
+        if (overloadController != null && !overloadController.tryAdmit(response.getType())) {
+            sendBusy(context, response);
+            if (onFinish != null) onFinish.run();
+            return;
+        }
+        ExecutorGroup group = executorGroups.getOrDefault(response.getType(), defaultExecutorGroup);
+        boolean submitted = group.submit(() -> {
+            try {
+                process(safeStatus, client, ip, context, response);
+            } finally {
+                if (overloadController != null) overloadController.complete();
+                if (onFinish != null) onFinish.run();
+            }
+        });
+        if (!submitted) {
+            if (overloadController != null) overloadController.complete();
+            sendBusy(context, response);
+            if (onFinish != null) onFinish.run();
+        }
+    }
+
+    private void sendBusy(WebSocketRequestContext context, WebSocketServerResponse response) {
+        ErrorRequestEvent event = new ErrorRequestEvent("Server is busy. Try again later");
+        if (retryAfterMillis > 0) event.retryAfter = retryAfterMillis;
+        hookComplete.hook(context);
+        if (response instanceof SimpleResponse simpleResponse) {
+            event.requestUUID = simpleResponse.requestUUID;
+            if (simpleResponse.resultConsumer != null) {
+                simpleResponse.resultConsumer.accept(event);
+                return;
+            }
+        }
+        sendObject(context.context.channel(), event);
+    }
+
+    public OverloadController getOverloadController() {
+        return overloadController;
+    }
+
+    public Collection<ExecutorGroup.Stats> getExecutorGroupStats() {
+        Set<ExecutorGroup> groups = Collections.newSetFromMap(new IdentityHashMap<>());
+        groups.add(defaultExecutorGroup);
+        groups.addAll(executorGroups.values());
+        List<ExecutorGroup.Stats> stats = new ArrayList<>(groups.size());
+        for (ExecutorGroup group : groups) {
+            stats.add(group.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Used heap and netty buffers of the whole server with the number of open connections. The shares per connection
+     * include everything else the server holds, so they are upper bounds, useful to compare configurations under the same load
+     */
+    public ConnectionMemoryStats getConnectionMemoryStats() {
+        long bufferBytes = 0;
+        if (ByteBufAllocator.DEFAULT instanceof ByteBufAllocatorMetricProvider provider) {
+            ByteBufAllocatorMetric metric = provider.metric();
+            bufferBytes = metric.usedDirectMemory() + metric.usedHeapMemory();
         }
+        long usedHeapBytes = JVMHelper.RUNTIME.totalMemory() - JVMHelper.RUNTIME.freeMemory();
+        return new ConnectionMemoryStats(channels.size(), bufferBytes, usedHeapBytes);
+    }
+
+    public void close() {
+        defaultExecutorGroup.close();
+        for (ExecutorGroup group : executorGroups.values()) {
+            group.close();
+        }
+    }
+
+    /**
+     * Executes a request embedded in another one like a separate request: in the executor group of its type,
+     * with the same overload admission, hooks and client locking
+     *
+     * @return completes when the request is finished or rejected
+     */
+    public CompletableFuture<Void> processNested(ChannelHandlerContext ctx, Client client, String ip, UUID connectUUID, WebSocketServerResponse response) {
+        WebSocketRequestContext context = new WebSocketRequestContext(ctx, null, client, ip, connectUUID);
+        context.response = response;
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        submit(context, response, client, ip, () -> future.complete(null));
+        return future;
+    }
+
+    private boolean hasRequestHooks() {
+        return !hookBeforeParsing.list.isEmpty() || !hookBeforeExecute.list.isEmpty() || !hookComplete.list.isEmpty();
+    }
+
+    private WebSocketServerResponse parseRequest(TextWebSocketFrame frame) {
+        try (Reader reader = new InputStreamReader(new ByteBufInputStream(frame.content().duplicate()), StandardCharsets.UTF_8)) {
+            WebSocketServerResponse response = requestAdapter.read(gson, reader);
+            if (response != null) {
+                return response;
+            }
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        // Type property is not first, fall back to the tree based parsing
+        return gson.fromJson(frame.text(), WebSocketServerResponse.class);
     }
 
     private void process(WebSocketServerResponse.ThreadSafeStatus safeStatus, Client client, String ip, WebSocketRequestContext context, WebSocketServerResponse response) {
@@ -153,7 +334,7 @@ private void process(WebSocketServerResponse.ThreadSafeStatus safeStatus, Client
                 process(context, response, client, ip);
             }
             case READ -> {
-                var lock = client.lock.readLock();
+                var lock = client.readLock();
                 lock.lock();
                 try {
                     process(context, response, client, ip);
@@ -162,7 +343,7 @@ private void process(WebSocketServerResponse.ThreadSafeStatus safeStatus, Client
                 }
             }
             case READ_WRITE -> {
-                var lock = client.lock.writeLock();
+                var lock = client.writeLock();
                 lock.lock();
                 try {
                     process(context, response, client, ip);
@@ -193,45 +374,325 @@ void process(WebSocketRequestContext context, WebSocketServerResponse response,
             logger.error("WebSocket request processing failed", e);
             RequestEvent event;
             event = new ErrorRequestEvent("Fatal server error. Contact administrator");
-            if (response instanceof SimpleResponse simpleResponse) event.requestUUID = simpleResponse.requestUUID;
-            sendObject(ctx.channel(), event);
+            if (response instanceof SimpleResponse simpleResponse && simpleResponse.resultConsumer != null) {
+                simpleResponse.sendResult(event);
+            } else {
+                if (response instanceof SimpleResponse simpleResponse) event.requestUUID = simpleResponse.requestUUID;
+                sendObject(ctx.channel(), event);
+            }
         }
+        updateIndexes(ctx.channel());
         hookComplete.hook(context);
     }
 
     public void registerClient(Channel channel) {
         channels.add(channel);
+        WebSocketFrameHandler wsHandler = channel.pipeline().get(WebSocketFrameHandler.class);
+        if (wsHandler == null) {
+            return;
+        }
+        IndexedKeys keys = new IndexedKeys(wsHandler.getConnectUUID());
+        if (channel.attr(INDEXED_KEYS).setIfAbsent(keys) != null) {
+            return;
+        }
+        connectUuidIndex.put(keys.connectUuid, channel);
+        channel.closeFuture().addListener((future) -> removeIndexes(channel));
+        updateIndexes(channel);
+    }
+
+    /**
+     * Moves the channel between user UUID and IP indexes after its client or address has changed.
+     * Called after every request, so authorization, restore and exit are picked up
+     */
+    public void updateIndexes(Channel channel) {
+        IndexedKeys keys = channel.attr(INDEXED_KEYS).get();
+        WebSocketFrameHandler wsHandler = channel.pipeline().get(WebSocketFrameHandler.class);
+        if (keys == null || wsHandler == null) {
+            return;
+        }
+        Client client = wsHandler.getClient();
+        UUID userUuid = client == null ? null : client.uuid;
+        String ip = getIPFromChannel(channel);
+        synchronized (keys) {
+            if (keys.removed) {
+                return;
+            }
+            if (!Objects.equals(keys.userUuid, userUuid)) {
+                removeFromIndex(userUuidIndex, keys.userUuid, channel);
+                addToIndex(userUuidIndex, userUuid, channel);
+                keys.userUuid = userUuid;
+            }
+            if (!Objects.equals(keys.ip, ip)) {
+                removeFromIndex(ipIndex, keys.ip, channel);
+                addToIndex(ipIndex, ip, channel);
+                keys.ip = ip;
+            }
+        }
+    }
+
+    private void removeIndexes(Channel channel) {
+        IndexedKeys keys = channel.attr(INDEXED_KEYS).get();
+        if (keys == null) {
+            return;
+        }
+        synchronized (keys) {
+            keys.removed = true;
+            connectUuidIndex.remove(keys.connectUuid, channel);
+            removeFromIndex(userUuidIndex, keys.userUuid, channel);
+            removeFromIndex(ipIndex, keys.ip, channel);
+        }
+    }
+
+    private static <K> void addToIndex(Map<K, Set<Channel>> index, K key, Channel channel) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(channel);
+            return set;
+        });
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<Channel>> index, K key, Channel channel) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(channel);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static List<Channel> getIndexed(Map<?, Set<Channel>> index, Object key) {
+        Set<Channel> set = index.get(key);
+        return set == null ? List.of() : List.copyOf(set);
+    }
+
+    /**
+     * Compares indexes with a full scan of channels and fixes differences
+     *
+     * @return count of channels whose indexes were wrong
+     */
+    public int checkIndexes() {
+        int fixed = 0;
+        for (Channel channel : channels) {
+            if (channel == null || channel.pipeline() == null) continue;
+            WebSocketFrameHandler wsHandler = channel.pipeline().get(WebSocketFrameHandler.class);
+            if (wsHandler == null) continue;
+            IndexedKeys keys = channel.attr(INDEXED_KEYS).get();
+            Client client = wsHandler.getClient();
+            UUID userUuid = client == null ? null : client.uuid;
+            if (keys == null || connectUuidIndex.get(wsHandler.getConnectUUID()) != channel
+                    || !Objects.equals(keys.userUuid, userUuid) || !Objects.equals(keys.ip, getIPFromChannel(channel))) {
+                fixed++;
+                if (keys == null) {
+                    registerClient(channel);
+                } else {
+                    connectUuidIndex.putIfAbsent(keys.connectUuid, channel);
+                    updateIndexes(channel);
+                }
+            }
+        }
+        if (fixed > 0) {
+            logger.warn("Fixed indexes of {} channels", fixed);
+        }
+        return fixed;
+    }
+
+    /**
+     * Serializes the object straight into a pooled buffer as UTF-8, without an intermediate String
+     *
+     * @return frame owning the buffer, released when written
+     */
+    public TextWebSocketFrame encode(ByteBufAllocator alloc, Object obj, Type type) {
+        ByteBuf buf = alloc.buffer();
+        try (Writer writer = new OutputStreamWriter(new ByteBufOutputStream(buf), StandardCharsets.UTF_8)) {
+            gson.toJson(obj, type, writer);
+        } catch (IOException e) {
+            buf.release();
+            throw new JsonIOException(e);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return new TextWebSocketFrame(buf);
+    }
+
+    /**
+     * Same as {@link #encode(ByteBufAllocator, Object, Type)}, but in CBOR
+     */
+    public BinaryWebSocketFrame encodeBinary(ByteBufAllocator alloc, Object obj, Type type) {
+        ByteBuf buf = alloc.buffer();
+        try (JsonWriter writer = new CborJsonWriter(new ByteBufOutputStream(buf))) {
+            gson.toJson(obj, type, writer);
+        } catch (IOException e) {
+            buf.release();
+            throw new JsonIOException(e);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        return new BinaryWebSocketFrame(buf);
+    }
+
+    /**
+     * Encodes the object in the protocol negotiated by the channel
+     */
+    public WebSocketFrame encode(Channel channel, Object obj, Type type) {
+        return isBinary(channel) ? encodeBinary(channel.alloc(), obj, type) : encode(channel.alloc(), obj, type);
+    }
+
+    public static boolean isBinary(Channel channel) {
+        return channel.hasAttr(BINARY) && Boolean.TRUE.equals(channel.attr(BINARY).get());
+    }
+
+    /**
+     * Switches the channel to the binary protocol, called once after the handshake
+     */
+    public void setBinary(Channel channel) {
+        if (channel.attr(BINARY).setIfAbsent(Boolean.TRUE) != null) {
+            return;
+        }
+        binaryChannels.incrementAndGet();
+        channel.closeFuture().addListener((future) -> binaryChannels.decrementAndGet());
+    }
+
+    private static String toLogString(WebSocketFrame frame) {
+        if (frame instanceof TextWebSocketFrame textFrame) {
+            return textFrame.text();
+        }
+        try {
+            return CborReader.parse(new ByteBufInputStream(frame.content().duplicate())).toString();
+        } catch (IOException | RuntimeException e) {
+            return "invalid CBOR: " + e;
+        }
+    }
+
+    /**
+     * Sends an event that is the same for every client with the same key, see {@link ResponseCache}
+     */
+    public void sendCached(Channel channel, String key, UUID requestUUID, Supplier<RequestEvent> supplier) {
+        if (responseCache == null || !hookSend.list.isEmpty()) {
+            // Send hooks need the event object
+            RequestEvent event = supplier.get();
+            event.requestUUID = requestUUID;
+            sendObject(channel, event);
+            return;
+        }
+        boolean binary = isBinary(channel);
+        WebSocketFrame frame = responseCache.get(key, binary, requestUUID, supplier,
+                event -> binary ? encodeBinary(ByteBufAllocator.DEFAULT, event, WebSocketEvent.class) : encode(ByteBufAllocator.DEFAULT, event, WebSocketEvent.class));
+        if (logger.isTraceEnabled()) {
+            logger.trace("Send to channel {}: {}", getIPFromChannel(channel), toLogString(frame));
+        }
+        channel.writeAndFlush(frame, channel.voidPromise());
     }
 
     public void sendObject(Channel channel, Object obj) {
         if(hookSend.hook(channel, obj)) {
             return;
         }
-        String msg = gson.toJson(obj, WebSocketEvent.class);
+        WebSocketFrame frame = encode(channel, obj, WebSocketEvent.class);
         if (logger.isTraceEnabled()) {
-            logger.trace("Send to channel {}: {}", getIPFromChannel(channel), msg);
+            logger.trace("Send to channel {}: {}", getIPFromChannel(channel), toLogString(frame));
         }
-        channel.writeAndFlush(new TextWebSocketFrame(msg), channel.voidPromise());
+        channel.writeAndFlush(frame, channel.voidPromise());
     }
 
     public void sendObject(Channel channel, Object obj, Type type) {
         if(hookSend.hook(channel, obj)) {
             return;
         }
-        String msg = gson.toJson(obj, type);
+        WebSocketFrame frame = encode(channel, obj, type);
         if (logger.isTraceEnabled()) {
-            logger.trace("Send to channel {}: {}", getIPFromChannel(channel), msg);
+            logger.trace("Send to channel {}: {}", getIPFromChannel(channel), toLogString(frame));
         }
-        channel.writeAndFlush(new TextWebSocketFrame(msg), channel.voidPromise());
+        channel.writeAndFlush(frame, channel.voidPromise());
     }
 
+    /**
+     * Serializes the object once and writes the shared buffer to every channel not intercepted by {@link #hookSend}
+     */
     public void sendObjectAll(Object obj, Type type) {
-        for (Channel ch : channels) {
-            sendObject(ch, obj, type);
+        TextWebSocketFrame frame = encode(ByteBufAllocator.DEFAULT, obj, type);
+        if (logger.isTraceEnabled()) {
+            logger.trace("Send to all: {}", frame.text());
+        }
+        // ChannelGroup writes a retained duplicate to each channel and releases the frame itself
+        channels.writeAndFlush(frame, ch -> !isBinary(ch) && !hookSend.hook(ch, obj), true);
+        if (binaryChannels.get() > 0) {
+            channels.writeAndFlush(encodeBinary(ByteBufAllocator.DEFAULT, obj, type), ch -> isBinary(ch) && !hookSend.hook(ch, obj), true);
         }
     }
 
     public void sendObjectToUUID(UUID userUuid, Object obj, Type type) {
+        WebSocketFrame textFrame = null;
+        WebSocketFrame binaryFrame = null;
+        try {
+            for (Channel ch : getIndexed(userUuidIndex, userUuid)) {
+                if(hookSend.hook(ch, obj)) {
+                    continue;
+                }
+                WebSocketFrame frame;
+                if (isBinary(ch)) {
+                    if (binaryFrame == null) binaryFrame = encodeBinary(ByteBufAllocator.DEFAULT, obj, type);
+                    frame = binaryFrame;
+                } else {
+                    if (textFrame == null) textFrame = encode(ByteBufAllocator.DEFAULT, obj, type);
+                    frame = textFrame;
+                }
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Send to {}({}): {}", getIPFromChannel(ch), userUuid, toLogString(frame));
+                }
+                ch.writeAndFlush(frame.retainedDuplicate(), ch.voidPromise());
+            }
+        } finally {
+            if (textFrame != null) textFrame.release();
+            if (binaryFrame != null) binaryFrame.release();
+        }
+    }
+
+    public Channel getChannelFromConnectUUID(UUID connectUuid) {
+        return connectUuidIndex.get(connectUuid);
+    }
+
+    public boolean kickByUserUUID(UUID userUuid, boolean isClose) {
+        boolean result = false;
+        for (Channel ch : getIndexed(userUuidIndex, userUuid)) {
+            result |= kick(ch, isClose);
+        }
+        return result;
+    }
+
+    public boolean kickByConnectUUID(UUID connectUuid, boolean isClose) {
+        Channel ch = connectUuidIndex.get(connectUuid);
+        return ch != null && kick(ch, isClose);
+    }
+
+    public boolean kickByIP(String ip, boolean isClose) {
+        boolean result = false;
+        for (Channel ch : getIndexed(ipIndex, ip)) {
+            result |= kick(ch, isClose);
+        }
+        return result;
+    }
+
+    private boolean kick(Channel ch, boolean isClose) {
+        WebSocketFrameHandler wsHandler = ch.pipeline().get(WebSocketFrameHandler.class);
+        if (wsHandler == null) return false;
+        ExitResponse.exit(server, wsHandler, ch, ExitRequestEvent.ExitReason.SERVER);
+        if (isClose) ch.close();
+        return true;
+    }
+
+    /*
+     * Full scan versions of the methods above, independent of indexes
+     */
+
+    public void sendObjectToUUIDScan(UUID userUuid, Object obj, Type type) {
         for (Channel ch : channels) {
             if (ch == null || ch.pipeline() == null) continue;
             WebSocketFrameHandler wsHandler = ch.pipeline().get(WebSocketFrameHandler.class);
@@ -241,15 +702,15 @@ public void sendObjectToUUID(UUID userUuid, Object obj, Type type) {
             if(hookSend.hook(ch, obj)) {
                 continue;
             }
-            String msg = gson.toJson(obj, type);
+            WebSocketFrame frame = encode(ch, obj, type);
             if (logger.isTraceEnabled()) {
-                logger.trace("Send to {}({}): {}", getIPFromChannel(ch), userUuid, msg);
+                logger.trace("Send to {}({}): {}", getIPFromChannel(ch), userUuid, toLogString(frame));
             }
-            ch.writeAndFlush(new TextWebSocketFrame(msg), ch.voidPromise());
+            ch.writeAndFlush(frame, ch.voidPromise());
         }
     }
 
-    public Channel getChannelFromConnectUUID(UUID connectUuid) {
+    public Channel getChannelFromConnectUUIDScan(UUID connectUuid) {
         for (Channel ch : channels) {
             if (ch == null || ch.pipeline() == null) continue;
             WebSocketFrameHandler wsHandler = ch.pipeline().get(WebSocketFrameHandler.class);
@@ -261,7 +722,7 @@ public Channel getChannelFromConnectUUID(UUID connectUuid) {
         return null;
     }
 
-    public boolean kickByUserUUID(UUID userUuid, boolean isClose) {
+    public boolean kickByUserUUIDScan(UUID userUuid, boolean isClose) {
         boolean result = false;
         for (Channel ch : channels) {
             if (ch == null || ch.pipeline() == null) continue;
@@ -276,7 +737,7 @@ public boolean kickByUserUUID(UUID userUuid, boolean isClose) {
         return result;
     }
 
-    public boolean kickByConnectUUID(UUID connectUuid, boolean isClose) {
+    public boolean kickByConnectUUIDScan(UUID connectUuid, boolean isClose) {
         for (Channel ch : channels) {
             if (ch == null || ch.pipeline() == null) continue;
             WebSocketFrameHandler wsHandler = ch.pipeline().get(WebSocketFrameHandler.class);
@@ -290,7 +751,7 @@ public boolean kickByConnectUUID(UUID connectUuid, boolean isClose) {
         return false;
     }
 
-    public boolean kickByIP(String ip, boolean isClose) {
+    public boolean kickByIPScan(String ip, boolean isClose) {
         boolean result = false;
         for (Channel ch : channels) {
             if (ch == null || ch.pipeline() == null) continue;
@@ -312,26 +773,31 @@ public void sendObjectAndClose(ChannelHandlerContext ctx, Object obj) {
         if(hookSend.hook(ctx.channel(), obj)) {
             return;
         }
-        String msg = gson.toJson(obj, WebSocketEvent.class);
+        WebSocketFrame frame = encode(ctx.channel(), obj, WebSocketEvent.class);
         if (logger.isTraceEnabled()) {
-            logger.trace("Send and close {}: {}", getIPFromContext(ctx), msg);
+            logger.trace("Send and close {}: {}", getIPFromContext(ctx), toLogString(frame));
         }
-        ctx.writeAndFlush(new TextWebSocketFrame(msg)).addListener(ChannelFutureListener.CLOSE);
+        ctx.writeAndFlush(frame).addListener(ChannelFutureListener.CLOSE);
     }
 
     public void sendObjectAndClose(ChannelHandlerContext ctx, Object obj, Type type) {
         if(hookSend.hook(ctx.channel(), obj)) {
             return;
         }
-        String msg = gson.toJson(obj, type);
+        WebSocketFrame frame = encode(ctx.channel(), obj, type);
         if (logger.isTraceEnabled()) {
-            logger.trace("Send and close {}: {}", getIPFromContext(ctx), msg);
+            logger.trace("Send and close {}: {}", getIPFromContext(ctx), toLogString(frame));
         }
-        ctx.writeAndFlush(new TextWebSocketFrame(msg)).addListener(ChannelFutureListener.CLOSE);
+        ctx.writeAndFlush(frame).addListener(ChannelFutureListener.CLOSE);
     }
 
     public static class WebSocketRequestContext {
         public final ChannelHandlerContext context;
+        /**
+         * Raw request text. It is decoded only when at least one of the hookBeforeParsing, hookBeforeExecute
+         * or hookComplete hooks is registered, so it is always set for hooks and may be null elsewhere.
+         * Null for requests nested in a batch, which have no text of their own
+         */
         public final String text;
         public final Client client;
         public final String ip;
@@ -348,6 +814,17 @@ public WebSocketRequestContext(ChannelHandlerContext context, String text, Clien
         }
     }
 
+    private static final class IndexedKeys {
+        private final UUID connectUuid;
+        private UUID userUuid;
+        private String ip;
+        private boolean removed;
+
+        private IndexedKeys(UUID connectUuid) {
+            this.connectUuid = connectUuid;
+        }
+    }
+
     public static class EventResult implements WebSocketEvent {
         public EventResult() {
 
@@ -359,4 +836,13 @@ public String getType() {
         }
     }
 
+    public record ConnectionMemoryStats(int connections, long bufferBytes, long usedHeapBytes) {
+        public long bufferShareUpperBound() {
+            return connections == 0 ? 0 : bufferBytes / connections;
+        }
+
+        public long usedHeapShareUpperBound() {
+            return connections == 0 ? 0 : usedHeapBytes / connections;
+        }
+    }
 }
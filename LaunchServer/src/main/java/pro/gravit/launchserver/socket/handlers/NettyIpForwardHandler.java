@@ -1,5 +1,6 @@
 package pro.gravit.launchserver.socket.handlers;
 
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.http.HttpHeaders;
@@ -9,19 +10,39 @@
 
 import java.util.List;
 
+@ChannelHandler.Sharable
 public class NettyIpForwardHandler extends MessageToMessageDecoder<HttpRequest> {
+    /**
+     * Context of the only channel of a handler created by the deprecated constructor, null for shared handlers
+     */
     private final NettyConnectContext context;
 
+    public NettyIpForwardHandler() {
+        super();
+        this.context = null;
+    }
+
+    /**
+     * Handler for a single channel whose pipeline may not set {@link NettyConnectContext} on the channel.
+     * Use the shared handler and {@link NettyConnectContext#set} instead
+     */
+    @Deprecated
     public NettyIpForwardHandler(NettyConnectContext context) {
         super();
         this.context = context;
     }
 
+    private NettyConnectContext getContext(ChannelHandlerContext ctx) {
+        NettyConnectContext channelContext = NettyConnectContext.get(ctx.channel());
+        return channelContext == null ? context : channelContext;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, HttpRequest msg, List<Object> out) {
         if (msg instanceof ReferenceCounted referenceCounted) {
             referenceCounted.retain();
         }
+        NettyConnectContext context = getContext(ctx);
         if (context.ip != null) {
             out.add(msg);
             return;
@@ -2,6 +2,7 @@
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
@@ -20,6 +21,7 @@
 
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+@ChannelHandler.Sharable
 public class NettyWebAPIHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final TreeSet<SeverletPathPair> severletList = new TreeSet<>(Comparator.comparingInt((e) -> -e.key.length()));
     private static final DefaultFullHttpResponse ERROR_500 = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, Unpooled.wrappedBuffer(IOHelper.encode("Internal Server Error 500")));
@@ -28,14 +30,33 @@ public class NettyWebAPIHandler extends SimpleChannelInboundHandler<FullHttpRequ
         ERROR_500.retain();
     }
 
-    private final NettyConnectContext context;
     private transient final Logger logger = LogManager.getLogger();
 
+    /**
+     * Context of the only channel of a handler created by the deprecated constructor, null for shared handlers
+     */
+    private final NettyConnectContext context;
+
+    public NettyWebAPIHandler() {
+        super();
+        this.context = null;
+    }
+
+    /**
+     * Handler for a single channel whose pipeline may not set {@link NettyConnectContext} on the channel.
+     * Use the shared handler and {@link NettyConnectContext#set} instead
+     */
+    @Deprecated
     public NettyWebAPIHandler(NettyConnectContext context) {
         super();
         this.context = context;
     }
 
+    private NettyConnectContext getContext(ChannelHandlerContext ctx) {
+        NettyConnectContext channelContext = NettyConnectContext.get(ctx.channel());
+        return channelContext == null ? context : channelContext;
+    }
+
     public static void addNewSeverlet(String path, SimpleSeverletHandler callback) {
         SeverletPathPair pair = new SeverletPathPair("/webapi/".concat(path), callback);
         severletList.add(pair);
@@ -57,7 +78,7 @@ protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) {
         for (SeverletPathPair pair : severletList) {
             if (msg.uri().startsWith(pair.key)) {
                 try {
-                    pair.callback.handle(ctx, msg, context);
+                    pair.callback.handle(ctx, msg, getContext(ctx));
                 } catch (Throwable e) {
                     logger.error("WebAPI Error", e);
                     ctx.writeAndFlush(ERROR_500, ctx.voidPromise());
@@ -1,10 +1,12 @@
 package pro.gravit.launchserver.socket.handlers;
 
-import io.netty.channel.Channel;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.websocketx.*;
-import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pro.gravit.launchserver.LaunchServer;
@@ -15,7 +17,6 @@
 import pro.gravit.utils.helper.IOHelper;
 
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
@@ -23,11 +24,11 @@ public class WebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocket
     public final WebSocketService service;
     public final BiHookSet<ChannelHandlerContext, WebSocketFrame> hooks = new BiHookSet<>();
     private final UUID connectUUID = UUID.randomUUID();
-    private final StringBuilder textBuffer = new StringBuilder();
+    private StringBuilder textBuffer;
+    private CompositeByteBuf binaryBuffer;
     private transient final Logger logger = LogManager.getLogger();
     public NettyConnectContext context;
     private Client client;
-    private ScheduledFuture<?> future;
 
     public WebSocketFrameHandler(NettyConnectContext context, LaunchServer srv, WebSocketService service) {
         this.context = context;
@@ -56,9 +57,7 @@ public void channelActive(ChannelHandlerContext ctx) {
         } else {
             client.ipAddress = IOHelper.getIP(ctx.channel().remoteAddress());
         }
-        Channel ch = ctx.channel();
-        service.registerClient(ch);
-        future = ctx.executor().scheduleAtFixedRate(() -> ch.writeAndFlush(new PingWebSocketFrame(), ch.voidPromise()), 30L, 30L, TimeUnit.SECONDS);
+        service.registerClient(ctx.channel());
     }
 
     @Override
@@ -69,7 +68,39 @@ protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
         } catch (Throwable ex) {
             logger.error("WebSocket frame handler hook error", ex);
         }
-        if (frame instanceof TextWebSocketFrame || frame instanceof ContinuationWebSocketFrame) {
+        if (frame instanceof BinaryWebSocketFrame || (frame instanceof ContinuationWebSocketFrame && binaryBuffer != null)) {
+            if (frame.isFinalFragment() && binaryBuffer == null) {
+                processBinary(ctx, frame.content());
+                return;
+            }
+            if (binaryBuffer == null) {
+                binaryBuffer = ctx.alloc().compositeBuffer();
+            }
+            binaryBuffer.addComponent(true, frame.content().retain());
+            if (binaryBuffer.readableBytes() > srv.config.netty.performance.maxWebSocketRequestBytes) {
+                logger.warn("Client {} send too large message. Connection force closed.", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip);
+                releaseBinaryBuffer();
+                ctx.channel().close();
+                return;
+            }
+            if (frame.isFinalFragment()) {
+                CompositeByteBuf fullMessage = binaryBuffer;
+                binaryBuffer = null;
+                try {
+                    processBinary(ctx, fullMessage);
+                } finally {
+                    fullMessage.release();
+                }
+            }
+        } else if (frame instanceof TextWebSocketFrame || frame instanceof ContinuationWebSocketFrame) {
+            if (frame.isFinalFragment() && frame instanceof TextWebSocketFrame textFrame && textBuffer == null) {
+                // Unfragmented message, parsed straight from the frame content
+                processText(ctx, textFrame);
+                return;
+            }
+            if (textBuffer == null) {
+                textBuffer = new StringBuilder();
+            }
             if (frame instanceof TextWebSocketFrame) {
                 textBuffer.append(((TextWebSocketFrame) frame).text());
             } else { // ContinuationWebSocketFrame
@@ -78,20 +109,12 @@ protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
 
             if (frame.isFinalFragment()) {
                 String fullMessage = textBuffer.toString();
-                textBuffer.setLength(0); // Clear buffer
-
-                if (logger.isTraceEnabled()) {
-                    logger.trace("Message from {}: {}", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip, fullMessage);
-                }
+                textBuffer = null;
+                TextWebSocketFrame fullFrame = new TextWebSocketFrame(fullMessage);
                 try {
-                    service.process(ctx, new TextWebSocketFrame(fullMessage), client, context.ip, connectUUID);
-                } catch (Throwable ex) {
-                    logger.warn("Client {} send invalid request. Connection force closed.", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip);
-                    if (logger.isTraceEnabled()) {
-                        logger.trace("Client message: {}", fullMessage);
-                        logger.error("Process websockets request failed", ex);
-                    }
-                    ctx.channel().close();
+                    processText(ctx, fullFrame);
+                } finally {
+                    fullFrame.release();
                 }
             }
         } else if (frame instanceof PingWebSocketFrame) {
@@ -107,9 +130,64 @@ protected void channelRead0(ChannelHandlerContext ctx, WebSocketFrame frame) {
         }
     }
 
+    private void processText(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Message from {}: {}", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip, frame.text());
+        }
+        try {
+            service.process(ctx, frame, client, context.ip, connectUUID);
+        } catch (Throwable ex) {
+            logger.warn("Client {} send invalid request. Connection force closed.", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip);
+            if (logger.isTraceEnabled()) {
+                logger.trace("Client message: {}", frame.text());
+                logger.error("Process websockets request failed", ex);
+            }
+            ctx.channel().close();
+        }
+    }
+
+    private void processBinary(ChannelHandlerContext ctx, ByteBuf content) {
+        try {
+            service.processBinary(ctx, content, client, context.ip, connectUUID);
+        } catch (Throwable ex) {
+            logger.warn("Client {} send invalid request. Connection force closed.", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip);
+            if (logger.isTraceEnabled()) {
+                logger.error("Process websockets request failed", ex);
+            }
+            ctx.channel().close();
+        }
+    }
+
+    private void releaseBinaryBuffer() {
+        if (binaryBuffer != null) {
+            binaryBuffer.release();
+            binaryBuffer = null;
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete handshake) {
+            if (WebSocketService.BINARY_SUBPROTOCOL.equals(handshake.selectedSubprotocol())) {
+                service.setBinary(ctx.channel());
+            }
+            int idleTimeout = srv.config.netty.performance.idleTimeoutSeconds;
+            if (idleTimeout > 0) {
+                // Only after the handshake: plain HTTP downloads may legitimately read nothing for a long time.
+                // First in the pipeline, so pongs consumed by the protocol handler still count as reads
+                ctx.pipeline().addFirst("idle", new IdleStateHandler(idleTimeout, 0, 0));
+            }
+        } else if (evt instanceof IdleStateEvent) {
+            logger.debug("Client {} idle timeout. Connection closed.", context.ip == null ? IOHelper.getIP(ctx.channel().remoteAddress()) : context.ip);
+            ctx.channel().close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
     @Override
     public void channelInactive(ChannelHandlerContext channelHandlerContext) throws Exception {
-        if (future != null) future.cancel(true);
+        releaseBinaryBuffer();
         if (logger.isTraceEnabled()) {
             logger.trace("Client {} disconnected", IOHelper.getIP(channelHandlerContext.channel().remoteAddress()));
         }
@@ -0,0 +1,96 @@
+package pro.gravit.launchserver.socket.handlers.fileserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-aware LRU cache of small files held in pooled direct buffers.
+ * Keys are content based (entity tags), so a changed file never hits a stale entry
+ */
+public class FileCache {
+    private final int maxFileSize;
+    private final long capacity;
+    private final LinkedHashMap<String, CachedFile> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    public FileCache(int maxFileSize, long capacity) {
+        this.maxFileSize = maxFileSize;
+        this.capacity = capacity;
+    }
+
+    public boolean isCacheable(long length) {
+        return length <= maxFileSize && length <= capacity;
+    }
+
+    /**
+     * @return entry with retained content, which must be released by the caller, or null
+     */
+    public synchronized CachedFile get(String key) {
+        CachedFile file = map.get(key);
+        return file == null ? null : file.retainedDuplicate();
+    }
+
+    /**
+     * Reads the whole file into a new entry
+     *
+     * @return entry with retained content, which must be released by the caller
+     */
+    public CachedFile load(String key, FileChannel channel, long length, long lastModified, String contentType) throws IOException {
+        ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer((int) length, (int) length);
+        try {
+            while (content.isWritable()) {
+                if (content.writeBytes(channel, content.writerIndex(), content.writableBytes()) < 0) {
+                    throw new IOException("File was truncated while reading");
+                }
+            }
+        } catch (IOException e) {
+            content.release();
+            throw e;
+        }
+        return put(key, new CachedFile(content, lastModified, contentType));
+    }
+
+    private synchronized CachedFile put(String key, CachedFile file) {
+        CachedFile old = map.put(key, file);
+        if (old != null) {
+            size -= old.content().readableBytes();
+            old.content().release();
+        }
+        size += file.content().readableBytes();
+        Iterator<Map.Entry<String, CachedFile>> iterator = map.entrySet().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            CachedFile eldest = iterator.next().getValue();
+            if (eldest == file) {
+                continue;
+            }
+            iterator.remove();
+            size -= eldest.content().readableBytes();
+            eldest.content().release();
+        }
+        return file.retainedDuplicate();
+    }
+
+    public synchronized void invalidate() {
+        for (CachedFile file : map.values()) {
+            file.content().release();
+        }
+        map.clear();
+        size = 0;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    public record CachedFile(ByteBuf content, long lastModified, String contentType) {
+        private CachedFile retainedDuplicate() {
+            return new CachedFile(content.retainedDuplicate(), lastModified, contentType);
+        }
+    }
+}
@@ -6,13 +6,17 @@
 import io.netty.handler.codec.http.*;
 import io.netty.handler.stream.ChunkedFile;
 import io.netty.util.CharsetUtil;
+import pro.gravit.launchserver.auth.updates.UpdatesProvider;
 import pro.gravit.launchserver.socket.handlers.ContentType;
 import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.SecurityHelper;
 import pro.gravit.utils.helper.VerifyHelper;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -25,15 +29,20 @@
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAccessor;
 import java.time.temporal.UnsupportedTemporalTypeException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Pattern;
 
 import static io.netty.handler.codec.http.HttpMethod.GET;
 import static io.netty.handler.codec.http.HttpResponseStatus.*;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+@ChannelHandler.Sharable
 public class FileServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
 
     public static final DateTimeFormatter dateFormatter;
@@ -41,6 +50,9 @@ public class FileServerHandler extends SimpleChannelInboundHandler<FullHttpReque
     public static final int HTTP_CACHE_SECONDS = VerifyHelper.verifyInt(Integer.parseInt(System.getProperty("launcher.fileserver.cachesec", "60")), VerifyHelper.NOT_NEGATIVE, "HttpCache seconds should be positive");
     private static final boolean OLD_ALGO = Boolean.parseBoolean(System.getProperty("launcher.fileserver.oldalgo", "true"));
     private static final ContentType TYPE_PROBE = Arrays.stream(ContentType.values()).filter(e -> e.name().toLowerCase(Locale.US).equals(System.getProperty("launcher.fileserver.typeprobe", "nio"))).findFirst().orElse(ContentType.UNIVERSAL);
+    private static final String GZIP = "gzip";
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int MAX_RANGES = Integer.parseUnsignedInt(System.getProperty("launcher.fileserver.maxranges", "16"));
     private static final Pattern ALLOWED_FILE_NAME = Pattern.compile("[^-\\._]?[^<>&\\\"]*");
 
     static {
@@ -50,11 +62,23 @@ public class FileServerHandler extends SimpleChannelInboundHandler<FullHttpReque
     private final Path base;
     private final boolean fullOut;
     private final boolean showHiddenFiles;
+    private final UpdatesProvider updatesProvider;
+    private final FileCache fileCache;
 
     public FileServerHandler(Path base, boolean fullOut, boolean showHiddenFiles) {
+        this(base, fullOut, showHiddenFiles, null, null);
+    }
+
+    /**
+     * @param updatesProvider source of file digests for ETag validation, may be null
+     * @param fileCache       cache of small files with known digests, may be null
+     */
+    public FileServerHandler(Path base, boolean fullOut, boolean showHiddenFiles, UpdatesProvider updatesProvider, FileCache fileCache) {
         this.base = base;
         this.fullOut = fullOut;
         this.showHiddenFiles = showHiddenFiles;
+        this.updatesProvider = updatesProvider;
+        this.fileCache = updatesProvider == null ? null : fileCache;
     }
 
     private static void sendListing(ChannelHandlerContext ctx, File dir, String dirPath, boolean showHidden) {
@@ -121,11 +145,21 @@ private static void sendError(ChannelHandlerContext ctx, HttpResponseStatus stat
     /**
      * When file timestamp is the same as what the browser is sending up, send a "304 Not Modified"
      *
-     * @param ctx Context
+     * @param ctx  Context
+     * @param etag entity tag of the file or null
      */
-    private static void sendNotModified(ChannelHandlerContext ctx) {
+    private static void sendNotModified(ChannelHandlerContext ctx, EntityTag etag) {
         FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, NOT_MODIFIED);
         setDateHeader(response);
+        if (etag != null) {
+            response.headers().set(HttpHeaderNames.ETAG, etag.value());
+            if (etag.immutable()) {
+                response.headers().set(HttpHeaderNames.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+            }
+            if (etag.varies()) {
+                response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+            }
+        }
 
         // Close the connection as soon as the error message is sent.
         ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
@@ -143,10 +177,11 @@ private static void setDateHeader(FullHttpResponse response) {
     /**
      * Sets the Date and Cache headers for the HTTP Response
      *
-     * @param response    HTTP response
-     * @param fileToCache file to extract content type
+     * @param response     HTTP response
+     * @param lastModified file modification time in milliseconds
+     * @param etag         entity tag of the file or null
      */
-    private static void setDateAndCacheHeaders(HttpResponse response, File fileToCache) {
+    private static void setDateAndCacheHeaders(HttpResponse response, long lastModified, EntityTag etag) {
         // Date header
         LocalDateTime time = LocalDateTime.now(Clock.systemUTC());
         response.headers().set(HttpHeaderNames.DATE, dateFormatter.format(time));
@@ -155,7 +190,84 @@ private static void setDateAndCacheHeaders(HttpResponse response, File fileToCac
         response.headers().set(HttpHeaderNames.EXPIRES, dateFormatter.format(time.plusSeconds(HTTP_CACHE_SECONDS)));
         response.headers().set(HttpHeaderNames.CACHE_CONTROL, "private, max-age=" + HTTP_CACHE_SECONDS);
         response.headers().set(
-                HttpHeaderNames.LAST_MODIFIED, dateFormatter.format(Instant.ofEpochMilli(fileToCache.lastModified())));
+                HttpHeaderNames.LAST_MODIFIED, dateFormatter.format(Instant.ofEpochMilli(lastModified)));
+        if (etag != null) {
+            response.headers().set(HttpHeaderNames.ETAG, etag.value());
+            if (etag.immutable()) {
+                response.headers().set(HttpHeaderNames.EXPIRES, dateFormatter.format(time.plusYears(1)));
+                response.headers().set(HttpHeaderNames.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+            }
+            if (etag.varies()) {
+                response.headers().set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+            }
+            if (etag.encoding() != null) {
+                response.headers().set(HttpHeaderNames.CONTENT_ENCODING, etag.encoding());
+            }
+        }
+    }
+
+    /**
+     * Builds a strong entity tag from the file digest known to the updates provider,
+     * so validation does not touch the disk. A file named after its own digest is content-addressed
+     *
+     * @param path '/' separated path relative to the base
+     * @return entity tag or null if the digest is unknown
+     */
+    private EntityTag getEntityTag(String path) {
+        if (updatesProvider == null) {
+            return null;
+        }
+        byte[] digest = updatesProvider.getFileDigest(path);
+        if (digest == null) {
+            return null;
+        }
+        String hex = SecurityHelper.toHex(digest);
+        return new EntityTag(hex, path.endsWith("/" + hex), null, false);
+    }
+
+    /**
+     * @return true if Accept-Encoding allows the content coding
+     */
+    private static boolean isAcceptedEncoding(HttpRequest request, String encoding) {
+        String acceptEncoding = request.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] params = element.split(";");
+            String coding = params[0].trim();
+            if (!coding.equalsIgnoreCase(encoding) && !coding.equals("*")) {
+                continue;
+            }
+            for (int i = 1; i < params.length; ++i) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Weak comparison of If-None-Match list with the entity tag
+     */
+    private static boolean isNoneMatch(String ifNoneMatch, EntityTag etag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag.value())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -198,6 +310,40 @@ public void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) thr
             return;
         }
 
+        // Cache validation by ETag, answered without touching the disk
+        EntityTag etag = getEntityTag(path.replace(File.separatorChar, '/'));
+        File encodedFile = null;
+        if (etag != null) {
+            // Precompressed variant has its own entity tag, so it is chosen before validation
+            Path precompressed = updatesProvider.getPrecompressedFile(etag.digest(), GZIP);
+            if (precompressed != null) {
+                boolean useVariant = request.headers().get(HttpHeaderNames.RANGE) == null && isAcceptedEncoding(request, GZIP);
+                encodedFile = useVariant ? precompressed.toFile() : null;
+                etag = new EntityTag(etag.digest(), etag.immutable(), useVariant ? GZIP : null, true);
+            }
+        }
+        String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+        String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        String rangeHeader = request.headers().get(HttpHeaderNames.RANGE);
+        if (etag != null && (showHiddenFiles || !IOHelper.getFileName(Path.of(path)).startsWith("."))) {
+            if (ifNoneMatch != null && !isNoneMatch(ifNoneMatch, etag)) {
+                sendNotModified(ctx, etag);
+                return;
+            }
+            if (fileCache != null && rangeHeader == null) {
+                FileCache.CachedFile cached = fileCache.get(etag.value());
+                if (cached != null) {
+                    if (ifNoneMatch == null && isNotModifiedSince(ifModifiedSince, cached.lastModified())) {
+                        cached.content().release();
+                        sendNotModified(ctx, etag);
+                    } else {
+                        sendCached(ctx, request, cached, etag);
+                    }
+                    return;
+                }
+            }
+        }
+
         File file = base.resolve(path).toFile();
         if ((file.isHidden() && !showHiddenFiles) || !file.exists()) {
             sendError(ctx, NOT_FOUND);
@@ -220,59 +366,88 @@ public void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) thr
             return;
         }
 
-        // Cache Validation
-        String ifModifiedSince = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
-        if (ifModifiedSince != null && !ifModifiedSince.isEmpty()) {
-            TemporalAccessor ifModifiedSinceDate = dateFormatter.parse(ifModifiedSince);
+        // Cache Validation, If-None-Match takes precedence
+        if ((etag == null || ifNoneMatch == null) && isNotModifiedSince(ifModifiedSince, file.lastModified())) {
+            sendNotModified(ctx, etag);
+            return;
+        }
 
-            // Only compare up to the second because the datetime format we send to the client
-            // does not have milliseconds
+        RandomAccessFile raf = null;
+        if (encodedFile != null) {
             try {
-                long ifModifiedSinceDateSeconds = ifModifiedSinceDate.getLong(ChronoField.INSTANT_SECONDS);
-                long fileLastModifiedSeconds = file.lastModified() / 1000;
-                if (ifModifiedSinceDateSeconds == fileLastModifiedSeconds) {
-                    sendNotModified(ctx);
-                    return;
-                }
-            } catch (UnsupportedTemporalTypeException ignored) {
+                raf = new RandomAccessFile(encodedFile, READ);
+            } catch (FileNotFoundException ignore) {
+                // Variant was removed by a concurrent sync, send the file itself
+                etag = new EntityTag(etag.digest(), etag.immutable(), null, true);
             }
         }
-
-        RandomAccessFile raf;
         try {
-            raf = new RandomAccessFile(file, READ);
+            if (raf == null) {
+                raf = new RandomAccessFile(file, READ);
+            }
         } catch (FileNotFoundException ignore) {
             sendError(ctx, NOT_FOUND);
             return;
         }
         long fileLength = raf.length();
 
-        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
-        HttpUtil.setContentLength(response, fileLength);
-        setContentTypeHeader(response, file);
-        setDateAndCacheHeaders(response, file);
+        if (fileCache != null && etag != null && rangeHeader == null && fileCache.isCacheable(fileLength)) {
+            FileCache.CachedFile cached;
+            try {
+                cached = fileCache.load(etag.value(), raf.getChannel(), fileLength, file.lastModified(), TYPE_PROBE.forPath(file));
+            } finally {
+                IOHelper.close(raf);
+            }
+            sendCached(ctx, request, cached, etag);
+            return;
+        }
+
+        List<ByteRange> ranges = null;
+        if (rangeHeader != null && isIfRangeSatisfied(request, file, etag)) {
+            ranges = parseRanges(rangeHeader, fileLength);
+        }
+        if (ranges != null && ranges.isEmpty()) {
+            IOHelper.close(raf);
+            sendRangeNotSatisfiable(ctx, fileLength);
+            return;
+        }
+
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, ranges == null ? OK : PARTIAL_CONTENT);
+        response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        setDateAndCacheHeaders(response, file.lastModified(), etag);
         if (HttpUtil.isKeepAlive(request)) {
             response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
 
-        // Write the initial line and the header.
-        ctx.write(response);
-
-        // Write the content.
-        ChannelFuture sendFileFuture;
         ChannelFuture lastContentFuture;
-        if (OLD_ALGO) {
-            sendFileFuture =
-                    ctx.write(new DefaultFileRegion(raf.getChannel(), 0, fileLength), ctx.newProgressivePromise());
-            // Write the end marker.
-            lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
-            lastContentFuture.addListener(new ClosingChannelFutureListener(raf));
+        if (ranges == null || ranges.size() == 1) {
+            long start = 0;
+            long length = fileLength;
+            if (ranges != null) {
+                ByteRange range = ranges.getFirst();
+                start = range.start();
+                length = range.length();
+                response.headers().set(HttpHeaderNames.CONTENT_RANGE, range.toContentRange(fileLength));
+            }
+            HttpUtil.setContentLength(response, length);
+            setContentTypeHeader(response, file);
+
+            // Write the initial line and the header.
+            ctx.write(response);
+
+            // Write the content.
+            if (OLD_ALGO) {
+                ctx.write(new DefaultFileRegion(raf.getChannel(), start, length), ctx.newProgressivePromise());
+                // Write the end marker.
+                lastContentFuture = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+                lastContentFuture.addListener(new ClosingChannelFutureListener(raf));
+            } else {
+                // HttpChunkedInput will write the end marker (LastHttpContent) for us.
+                lastContentFuture = ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(raf, start, length, 8192)),
+                        ctx.newProgressivePromise());
+            }
         } else {
-            sendFileFuture =
-                    ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(raf, 0, fileLength, 8192)),
-                            ctx.newProgressivePromise());
-            // HttpChunkedInput will write the end marker (LastHttpContent) for us.
-            lastContentFuture = sendFileFuture;
+            lastContentFuture = sendMultipartRanges(ctx, response, file, raf, fileLength, ranges);
         }
 
         // Decide whether to close the connection or not.
@@ -281,6 +456,205 @@ public void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) thr
         }
     }
 
+    /**
+     * Sends a file from {@link FileCache}, the retained content is released by the write
+     */
+    private static void sendCached(ChannelHandlerContext ctx, FullHttpRequest request, FileCache.CachedFile cached, EntityTag etag) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, cached.content());
+        response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        setDateAndCacheHeaders(response, cached.lastModified(), etag);
+        HttpUtil.setContentLength(response, cached.content().readableBytes());
+        if (cached.contentType() != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, cached.contentType());
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * @return true if If-Modified-Since header matches the modification time
+     */
+    private static boolean isNotModifiedSince(String ifModifiedSince, long lastModified) {
+        if (ifModifiedSince == null || ifModifiedSince.isEmpty()) {
+            return false;
+        }
+        TemporalAccessor ifModifiedSinceDate = dateFormatter.parse(ifModifiedSince);
+
+        // Only compare up to the second because the datetime format we send to the client
+        // does not have milliseconds
+        try {
+            long ifModifiedSinceDateSeconds = ifModifiedSinceDate.getLong(ChronoField.INSTANT_SECONDS);
+            return ifModifiedSinceDateSeconds == lastModified / 1000;
+        } catch (UnsupportedTemporalTypeException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a multipart/byteranges body. Every part gets its own file region or chunked file,
+     * because both of them close the underlying file when released
+     */
+    private static ChannelFuture sendMultipartRanges(ChannelHandlerContext ctx, HttpResponse response, File file,
+                                                     RandomAccessFile raf, long fileLength, List<ByteRange> ranges) throws IOException {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        String contentType = TYPE_PROBE.forPath(file);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            StringBuilder builder = new StringBuilder().append("\r\n--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                builder.append(HttpHeaderNames.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+            }
+            builder.append(HttpHeaderNames.CONTENT_RANGE).append(": ").append(range.toContentRange(fileLength)).append("\r\n\r\n");
+            byte[] header = builder.toString().getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range.length();
+        }
+        byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length;
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        HttpUtil.setContentLength(response, contentLength);
+        ctx.write(response);
+        for (int i = 0; i < ranges.size(); ++i) {
+            ByteRange range = ranges.get(i);
+            ctx.write(new DefaultHttpContent(Unpooled.wrappedBuffer(partHeaders.get(i))));
+            if (OLD_ALGO) {
+                ctx.write(new DefaultFileRegion(file, range.start(), range.length()));
+            } else {
+                ctx.write(new ChunkedFile(new RandomAccessFile(file, READ), range.start(), range.length(), 8192));
+            }
+        }
+        ChannelFuture lastContentFuture = ctx.writeAndFlush(new DefaultLastHttpContent(Unpooled.wrappedBuffer(end)));
+        lastContentFuture.addListener(new ClosingChannelFutureListener(raf));
+        return lastContentFuture;
+    }
+
+    private static void sendRangeNotSatisfiable(ChannelHandlerContext ctx, long fileLength) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.headers().set(HttpHeaderNames.CONTENT_RANGE, "bytes */" + fileLength);
+        response.headers().set(HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES);
+        HttpUtil.setContentLength(response, 0);
+
+        // Close the connection as soon as the error message is sent.
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * Range must be ignored when If-Range does not match the current representation
+     */
+    private static boolean isIfRangeSatisfied(HttpRequest request, File file, EntityTag etag) {
+        String ifRange = request.headers().get(HttpHeaderNames.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return etag != null && ifRange.equals(etag.value());
+        }
+        return ifRange.equals(dateFormatter.format(Instant.ofEpochMilli(file.lastModified())));
+    }
+
+    /**
+     * Parses RFC 7233 byte ranges
+     *
+     * @return null if the header should be ignored, an empty list if no range is satisfiable
+     */
+    private static List<ByteRange> parseRanges(String header, long fileLength) {
+        int eq = header.indexOf('=');
+        if (eq < 0 || !header.substring(0, eq).trim().equalsIgnoreCase("bytes")) {
+            return null;
+        }
+        String[] specs = header.substring(eq + 1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long start, end;
+            try {
+                if (dash == 0) {
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, fileLength - suffix);
+                    end = fileLength - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    end = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, fileLength - 1);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start < fileLength) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    /**
+     * Merges overlapping and adjacent ranges, so a client can't request the same bytes many times
+     */
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::start));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.getFirst();
+        for (int i = 1; i < ranges.size(); ++i) {
+            ByteRange range = ranges.get(i);
+            if (range.start() <= current.end() + 1) {
+                current = new ByteRange(current.start(), Math.max(current.end(), range.end()));
+            } else {
+                merged.add(current);
+                current = range;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    /**
+     * @param digest    hex digest of the file content
+     * @param immutable the path is content-addressed
+     * @param encoding  content coding of the sent variant or null
+     * @param varies    the file has encoded variants
+     */
+    private record EntityTag(String digest, boolean immutable, String encoding, boolean varies) {
+        String value() {
+            return encoding == null ? "\"" + digest + "\"" : "\"" + digest + "-" + encoding + "\"";
+        }
+    }
+
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String toContentRange(long fileLength) {
+            return "bytes " + start + "-" + end + "/" + fileLength;
+        }
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         cause.printStackTrace();
@@ -0,0 +1,94 @@
+package pro.gravit.launchserver.socket.response;
+
+import io.netty.channel.ChannelHandlerContext;
+import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.launcher.base.events.request.BatchRequestEvent;
+import pro.gravit.launcher.base.request.WebSocketEvent;
+import pro.gravit.launchserver.socket.Client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Executes several requests from one message and returns their results together.
+ * Results sent after the batch is finished, or directly to the channel, are delivered as usual
+ */
+public class BatchResponse extends SimpleResponse {
+    public static final int MAX_REQUESTS = 32;
+    public List<WebSocketServerResponse> requests;
+    public boolean parallel;
+
+    @Override
+    public String getType() {
+        return "batch";
+    }
+
+    @Override
+    public ThreadSafeStatus getThreadSafeStatus() {
+        // Nested requests take the client lock themselves
+        return ThreadSafeStatus.NONE;
+    }
+
+    @Override
+    public void execute(ChannelHandlerContext ctx, Client client) {
+        if (requests == null || requests.isEmpty()) {
+            sendError("Batch is empty");
+            return;
+        }
+        if (requests.size() > MAX_REQUESTS) {
+            sendError(String.format("Batch is too large, max %d requests", MAX_REQUESTS));
+            return;
+        }
+        for (WebSocketServerResponse request : requests) {
+            if (request == null || request instanceof BatchResponse) {
+                sendError("Invalid batch request");
+                return;
+            }
+        }
+        Collector collector = new Collector();
+        for (WebSocketServerResponse request : requests) {
+            if (request instanceof SimpleResponse simpleResponse) {
+                simpleResponse.resultConsumer = collector;
+            }
+        }
+        // Nested requests go through the executor groups of their types, so a batch can't bypass their limits.
+        // The result is sent when the last one finishes, without holding a thread while waiting
+        CompletableFuture<Void> done;
+        if (parallel) {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[requests.size()];
+            for (int i = 0; i < futures.length; ++i) {
+                futures[i] = service.processNested(ctx, client, ip, connectUUID, requests.get(i));
+            }
+            done = CompletableFuture.allOf(futures);
+        } else {
+            done = CompletableFuture.completedFuture(null);
+            for (WebSocketServerResponse request : requests) {
+                done = done.thenCompose(v -> service.processNested(ctx, client, ip, connectUUID, request));
+            }
+        }
+        done.whenComplete((v, e) -> sendResult(new BatchRequestEvent(collector.finish())));
+    }
+
+    private class Collector implements Consumer<RequestEvent> {
+        private final List<WebSocketEvent> results = new ArrayList<>(requests.size());
+        private boolean finished;
+
+        @Override
+        public void accept(RequestEvent event) {
+            synchronized (this) {
+                if (!finished) {
+                    results.add(event);
+                    return;
+                }
+            }
+            service.sendObject(ctx.channel(), event);
+        }
+
+        private synchronized List<WebSocketEvent> finish() {
+            finished = true;
+            return results;
+        }
+    }
+}
@@ -7,6 +7,8 @@
 import pro.gravit.launchserver.socket.WebSocketService;
 
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public abstract class SimpleResponse implements WebSocketServerResponse {
     public UUID requestUUID;
@@ -15,20 +17,37 @@ public abstract class SimpleResponse implements WebSocketServerResponse {
     public transient ChannelHandlerContext ctx;
     public transient UUID connectUUID;
     public transient String ip;
+    /**
+     * Receives results instead of the channel when set, see {@link BatchResponse}
+     */
+    public transient Consumer<RequestEvent> resultConsumer;
 
     public void sendResult(RequestEvent result) {
         result.requestUUID = requestUUID;
+        if (resultConsumer != null) {
+            resultConsumer.accept(result);
+            return;
+        }
         service.sendObject(ctx.channel(), result);
     }
 
+    /**
+     * Sends a result that depends only on the key, encoded once and shared between clients until the cache is invalidated
+     */
+    public void sendCachedResult(String key, Supplier<RequestEvent> supplier) {
+        if (resultConsumer != null) {
+            sendResult(supplier.get());
+            return;
+        }
+        service.sendCached(ctx.channel(), key, requestUUID, supplier);
+    }
+
     public void sendResultAndClose(RequestEvent result) {
         result.requestUUID = requestUUID;
         service.sendObjectAndClose(ctx, result);
     }
 
     public void sendError(String errorMessage) {
-        ErrorRequestEvent event = new ErrorRequestEvent(errorMessage);
-        event.requestUUID = requestUUID;
-        service.sendObject(ctx.channel(), event);
+        sendResult(new ErrorRequestEvent(errorMessage));
     }
 }
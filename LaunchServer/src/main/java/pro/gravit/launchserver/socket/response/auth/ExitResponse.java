@@ -26,6 +26,7 @@ public static void exit(LaunchServer server, WebSocketFrameHandler wsHandler, Ch
             newCusClient.staticProperties = new HashMap<>(chClient.staticProperties);
         }
         wsHandler.setClient(newCusClient);
+        wsHandler.service.updateIndexes(channel);
         ExitRequestEvent event = new ExitRequestEvent(reason);
         event.requestUUID = RequestEvent.eventUUID;
         wsHandler.service.sendObject(channel, event);
@@ -17,11 +17,21 @@ public String getType() {
 
     @Override
     public void execute(ChannelHandlerContext ctx, Client client) {
+        for (AuthProviderPair pair : server.config.auth.values()) {
+            if (!pair.core.isDetailsCacheable()) {
+                sendResult(makeEvent(client));
+                return;
+            }
+        }
+        sendCachedResult("getAvailabilityAuth", () -> makeEvent(client));
+    }
+
+    private GetAvailabilityAuthRequestEvent makeEvent(Client client) {
         List<GetAvailabilityAuthRequestEvent.AuthAvailability> list = new ArrayList<>();
         for (AuthProviderPair pair : server.config.auth.values()) {
             list.add(new GetAvailabilityAuthRequestEvent.AuthAvailability(pair.core.getDetails(client), pair.name, pair.displayName,
                     pair.visible, pair.getFeatures()));
         }
-        sendResult(new GetAvailabilityAuthRequestEvent(list));
+        return new GetAvailabilityAuthRequestEvent(list);
     }
 }
@@ -9,6 +9,8 @@
 import pro.gravit.launchserver.socket.response.SimpleResponse;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
@@ -41,6 +43,19 @@ public void execute(ChannelHandlerContext ctx, Client client) {
             sendError("Access denied");
             return;
         }
-        sendResult(new ProfilesRequestEvent(server.config.profileProvider.getProfiles(client)));
+        List<ClientProfile> profiles = server.config.profileProvider.getProfiles(client);
+        Set<ClientProfile> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        shared.addAll(server.config.profileProvider.getProfiles());
+        // Clients that see the same set of shared profiles get the same event
+        StringBuilder key = new StringBuilder("profiles");
+        for (ClientProfile profile : profiles) {
+            if (!shared.contains(profile)) {
+                // Built for this client, nothing to share
+                sendResult(new ProfilesRequestEvent(profiles));
+                return;
+            }
+            key.append(':').append(profile.getUUID());
+        }
+        sendCachedResult(key.toString(), () -> new ProfilesRequestEvent(profiles));
     }
 }
@@ -13,6 +13,6 @@ public String getType() {
 
     @Override
     public void execute(ChannelHandlerContext ctx, Client client) {
-        sendResult(new FeaturesRequestEvent(server.featuresManager.getMap()));
+        sendCachedResult("features:" + server.featuresManager.getVersion(), () -> new FeaturesRequestEvent(server.featuresManager.getMap()));
     }
 }
@@ -7,6 +7,9 @@
 import pro.gravit.launchserver.socket.Client;
 import pro.gravit.launchserver.socket.response.SimpleResponse;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BatchProfileByUsername extends SimpleResponse {
     Entry[] list;
 
@@ -22,14 +25,15 @@ public void execute(ChannelHandlerContext ctx, Client client) {
             sendError("Invalid request");
             return;
         }
-        result.playerProfiles = new PlayerProfile[list.length];
-        for (int i = 0; i < list.length; ++i) {
-            AuthProviderPair pair = client.auth;
-            if (pair == null) {
-                pair = server.config.getAuthProviderPair();
-            }
-            result.playerProfiles[i] = server.authManager.getPlayerProfile(pair, list[i].username);
+        AuthProviderPair pair = client.auth;
+        if (pair == null) {
+            pair = server.config.getAuthProviderPair();
+        }
+        List<String> usernames = new ArrayList<>(list.length);
+        for (Entry entry : list) {
+            usernames.add(entry.username);
         }
+        result.playerProfiles = server.authManager.getPlayerProfiles(pair, usernames).toArray(new PlayerProfile[0]);
         sendResult(result);
     }
 
@@ -1,6 +1,8 @@
 package pro.gravit.launchserver.socket.response.update;
 
 import io.netty.channel.ChannelHandlerContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import pro.gravit.launcher.base.events.request.UpdateRequestEvent;
 import pro.gravit.launcher.core.hasher.HashedDir;
 import pro.gravit.launchserver.auth.protect.interfaces.ProfilesProtectHandler;
@@ -9,8 +11,13 @@
 import pro.gravit.launchserver.socket.response.SimpleResponse;
 import pro.gravit.utils.helper.IOHelper;
 
+import java.io.IOException;
+
 public class UpdateResponse extends SimpleResponse {
+    private transient final Logger logger = LogManager.getLogger();
     public String dirName;
+    public boolean compact;
+    public String knownVersion;
 
     @Override
     public String getType() {
@@ -27,7 +34,7 @@ public void execute(ChannelHandlerContext ctx, Client client) {
             sendError("Invalid request");
             return;
         }
-        HashedDir dir = server.updatesManager.getUpdate(dirName);
+        HashedDir dir = server.config.updatesProvider.getUpdatesDir(dirName);
         if (dir == null) {
             sendError("Directory %s not found".formatted(dirName));
             return;
@@ -39,6 +46,46 @@ public void execute(ChannelHandlerContext ctx, Client client) {
             url = bind.url;
             zip = bind.zip;
         }
-        sendResult(new UpdateRequestEvent(dir, url, zip));
+        String version = server.config.updatesProvider.getUpdatesDirVersion(dirName);
+        if (version != null && knownVersion != null) {
+            if (version.equals(knownVersion)) {
+                UpdateRequestEvent event = new UpdateRequestEvent(null, url, zip);
+                event.version = version;
+                event.unchanged = true;
+                sendResult(event);
+                return;
+            }
+            HashedDir.Delta delta = server.config.updatesProvider.getUpdatesDirDelta(dirName, knownVersion);
+            if (delta != null) {
+                UpdateRequestEvent event = makeDeltaEvent(delta.changed, url, zip);
+                event.version = version;
+                event.baseVersion = knownVersion;
+                event.removed = delta.removed;
+                sendResult(event);
+                return;
+            }
+        }
+        String compactDir = null;
+        if (compact) {
+            try {
+                compactDir = server.config.updatesProvider.getCompactUpdatesDir(dirName);
+            } catch (IOException e) {
+                logger.error("Compact encoding of '{}' failed, sending legacy format", dirName, e);
+            }
+        }
+        UpdateRequestEvent event = compactDir != null ? UpdateRequestEvent.compact(compactDir, url, zip) : new UpdateRequestEvent(dir, url, zip);
+        event.version = version;
+        sendResult(event);
+    }
+
+    private UpdateRequestEvent makeDeltaEvent(HashedDir changed, String url, boolean zip) {
+        if (compact) {
+            try {
+                return UpdateRequestEvent.compact(UpdateRequestEvent.encodeHashedDir(changed), url, zip);
+            } catch (IOException e) {
+                logger.error("Compact encoding of '{}' delta failed, sending legacy format", dirName, e);
+            }
+        }
+        return new UpdateRequestEvent(changed, url, zip);
     }
 }
@@ -0,0 +1,279 @@
+package pro.gravit.launchserver;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.base.Launcher;
+import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.launcher.base.events.request.BatchRequestEvent;
+import pro.gravit.launcher.base.events.request.ErrorRequestEvent;
+import pro.gravit.launcher.base.request.WebSocketEvent;
+import pro.gravit.launchserver.config.LaunchServerConfig;
+import pro.gravit.launchserver.config.LaunchServerRuntimeConfig;
+import pro.gravit.launchserver.impl.TestLaunchServerConfigManager;
+import pro.gravit.launchserver.manangers.CertificateManager;
+import pro.gravit.launchserver.manangers.LaunchServerGsonManager;
+import pro.gravit.launchserver.modules.impl.LaunchServerModulesManager;
+import pro.gravit.launchserver.socket.Client;
+import pro.gravit.launchserver.socket.WebSocketService;
+import pro.gravit.launchserver.socket.response.BatchResponse;
+import pro.gravit.launchserver.socket.response.SimpleResponse;
+import pro.gravit.launchserver.socket.response.WebSocketServerResponse;
+import pro.gravit.utils.command.StdCommandHandler;
+
+import java.nio.file.Path;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class BatchResponseTest {
+    @TempDir
+    public static Path modulesDir;
+    @TempDir
+    public static Path configDir;
+    @TempDir
+    public static Path dir;
+    public static LaunchServer launchServer;
+    private final BlockingQueue<Object> sent = new LinkedBlockingQueue<>();
+    private WebSocketService service;
+    private EmbeddedChannel channel;
+
+    @BeforeAll
+    public static void prepare() throws Throwable {
+        if (Security.getProvider("BC") == null) Security.addProvider(new BouncyCastleProvider());
+        LaunchServerModulesManager modulesManager = new LaunchServerModulesManager(modulesDir, configDir, null);
+        LaunchServerConfig config = LaunchServerConfig.getDefault(LaunchServer.LaunchServerEnv.TEST);
+        config.netty.performance.overload.enabled = false;
+        config.netty.performance.executorGroups.put("limited", new LaunchServerConfig.NettyExecutorGroupConfig(1, 1,
+                new ArrayList<>(List.of("batchTestLimited"))));
+        Launcher.gsonManager = new LaunchServerGsonManager(modulesManager);
+        Launcher.gsonManager.initGson();
+        launchServer = new LaunchServerBuilder()
+                .setDir(dir)
+                .setEnv(LaunchServer.LaunchServerEnv.TEST)
+                .setConfig(config)
+                .setRuntimeConfig(new LaunchServerRuntimeConfig())
+                .setCertificateManager(new CertificateManager())
+                .setLaunchServerConfigManager(new TestLaunchServerConfigManager())
+                .setModulesManager(modulesManager)
+                .setCommandHandler(new StdCommandHandler(false))
+                .build();
+    }
+
+    @AfterAll
+    public static void complete() throws Throwable {
+        launchServer.close();
+    }
+
+    @BeforeEach
+    public void start() {
+        service = new WebSocketService(new DefaultChannelGroup(GlobalEventExecutor.INSTANCE), launchServer);
+        // Everything sent to the channel is taken before encoding
+        service.hookSend.registerHook((ch, obj) -> {
+            sent.add(obj);
+            return true;
+        });
+        channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+    }
+
+    @AfterEach
+    public void stop() {
+        service.close();
+        channel.finishAndReleaseAll();
+    }
+
+    private BatchResponse batch(boolean parallel, List<WebSocketServerResponse> requests) {
+        BatchResponse batch = new BatchResponse();
+        batch.requestUUID = UUID.randomUUID();
+        batch.requests = requests;
+        batch.parallel = parallel;
+        batch.server = launchServer;
+        batch.service = service;
+        batch.ctx = channel.pipeline().firstContext();
+        batch.ip = "127.0.0.1";
+        return batch;
+    }
+
+    private RequestEvent execute(BatchResponse batch) throws Exception {
+        batch.execute(batch.ctx, new Client());
+        RequestEvent event = poll();
+        Assertions.assertEquals(batch.requestUUID, event.requestUUID);
+        return event;
+    }
+
+    private List<WebSocketEvent> executeResults(BatchResponse batch) throws Exception {
+        return Assertions.assertInstanceOf(BatchRequestEvent.class, execute(batch)).results;
+    }
+
+    private RequestEvent poll() throws InterruptedException {
+        Object obj = sent.poll(10, TimeUnit.SECONDS);
+        Assertions.assertNotNull(obj);
+        return Assertions.assertInstanceOf(RequestEvent.class, obj);
+    }
+
+    private static String valueOf(WebSocketEvent event) {
+        return Assertions.assertInstanceOf(TestEvent.class, event).value;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void limitsTest() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        Assertions.assertEquals("Batch is empty",
+                ((ErrorRequestEvent) execute(batch(false, List.of()))).error);
+        List<WebSocketServerResponse> tooMany = new ArrayList<>();
+        for (int i = 0; i <= BatchResponse.MAX_REQUESTS; ++i) {
+            tooMany.add(new TestResponse("batchTest", "v" + i, r -> executed.incrementAndGet()));
+        }
+        Assertions.assertEquals(String.format("Batch is too large, max %d requests", BatchResponse.MAX_REQUESTS),
+                ((ErrorRequestEvent) execute(batch(true, tooMany))).error);
+        // Nothing is executed when one of the requests is invalid
+        Assertions.assertEquals("Invalid batch request", ((ErrorRequestEvent) execute(batch(false, List.of(
+                new TestResponse("batchTest", "a", r -> executed.incrementAndGet()),
+                batch(false, List.of(new TestResponse("batchTest", "b", null))))))).error);
+        Assertions.assertEquals("Invalid batch request", ((ErrorRequestEvent) execute(batch(false,
+                Collections.singletonList(null)))).error);
+        Assertions.assertEquals(0, executed.get());
+        Assertions.assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void sequentialTest() throws Exception {
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        List<TestResponse> requests = new ArrayList<>();
+        for (String value : new String[]{"a", "b", "c"}) {
+            requests.add(new TestResponse("batchTest", value, r -> {
+                log.add("start " + r.value);
+                try {
+                    Thread.sleep(r.value.equals("a") ? 50 : 10);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                log.add("end " + r.value);
+            }));
+        }
+        List<WebSocketEvent> results = executeResults(batch(false, new ArrayList<>(requests)));
+        Assertions.assertEquals(List.of("start a", "end a", "start b", "end b", "start c", "end c"), log);
+        Assertions.assertEquals(List.of("a", "b", "c"), results.stream().map(BatchResponseTest::valueOf).toList());
+        for (int i = 0; i < requests.size(); ++i) {
+            Assertions.assertEquals(requests.get(i).requestUUID, ((RequestEvent) results.get(i)).requestUUID);
+        }
+        Assertions.assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void parallelTest() throws Exception {
+        TestResponse c = new TestResponse("batchTest", "c", null);
+        TestResponse b = new TestResponse("batchTest", "b", r -> await(c.sentLatch));
+        TestResponse a = new TestResponse("batchTest", "a", r -> await(b.sentLatch));
+        // "a" runs while waiting for the others, results are collected in the order they are sent
+        List<WebSocketEvent> results = executeResults(batch(true, List.of(a, b, c)));
+        Assertions.assertEquals(List.of("c", "b", "a"), results.stream().map(BatchResponseTest::valueOf).toList());
+        Assertions.assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    public void lateResultTest() throws Exception {
+        CountDownLatch batchSent = new CountDownLatch(1);
+        TestResponse a = new TestResponse("batchTest", "a", r -> Thread.ofVirtual().start(() -> {
+            await(batchSent);
+            r.sendResult(new TestEvent("late"));
+        }));
+        List<WebSocketEvent> results = executeResults(batch(false, List.of(a)));
+        Assertions.assertEquals(List.of("a"), results.stream().map(BatchResponseTest::valueOf).toList());
+        batchSent.countDown();
+        // Result sent after the batch is finished goes to the channel on its own
+        RequestEvent late = poll();
+        Assertions.assertEquals("late", valueOf(late));
+        Assertions.assertEquals(a.requestUUID, late.requestUUID);
+    }
+
+    @Test
+    public void busyTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // Limited group runs one request and queues one more
+        TestResponse running = new TestResponse("batchTestLimited", "running", r -> await(release));
+        TestResponse queued = new TestResponse("batchTestLimited", "queued", null);
+        TestResponse rejected = new TestResponse("batchTestLimited", "rejected", null);
+        TestResponse other = new TestResponse("batchTest", "other", null);
+        BatchResponse batch = batch(true, List.of(running, queued, rejected, other));
+        batch.execute(batch.ctx, new Client());
+        release.countDown();
+        RequestEvent event = poll();
+        List<WebSocketEvent> results = Assertions.assertInstanceOf(BatchRequestEvent.class, event).results;
+        Assertions.assertEquals(4, results.size());
+        // Rejection is known at once, before any request is finished
+        ErrorRequestEvent error = Assertions.assertInstanceOf(ErrorRequestEvent.class, results.getFirst());
+        Assertions.assertEquals("Server is busy. Try again later", error.error);
+        Assertions.assertEquals(rejected.requestUUID, error.requestUUID);
+        Assertions.assertEquals(List.of("other", "queued", "running"), results.subList(1, 4).stream()
+                .map(BatchResponseTest::valueOf).sorted().toList());
+        Assertions.assertTrue(sent.isEmpty());
+    }
+
+    public static class TestResponse extends SimpleResponse {
+        private final String type;
+        private final String value;
+        private final Consumer<TestResponse> action;
+        private final CountDownLatch sentLatch = new CountDownLatch(1);
+
+        public TestResponse(String type, String value, Consumer<TestResponse> action) {
+            this.type = type;
+            this.value = value;
+            this.action = action;
+            this.requestUUID = UUID.randomUUID();
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public void execute(ChannelHandlerContext ctx, Client client) {
+            if (action != null) {
+                action.accept(this);
+            }
+            sendResult(new TestEvent(value));
+            sentLatch.countDown();
+        }
+    }
+
+    public static class TestEvent extends RequestEvent {
+        public String value;
+
+        public TestEvent(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getType() {
+            return "batchTest";
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package pro.gravit.launchserver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pro.gravit.launcher.base.profiles.Texture;
+import pro.gravit.launchserver.auth.texture.CachedTextureProvider;
+import pro.gravit.launchserver.auth.texture.TextureProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedTextureProviderTest {
+    private static final UUID FIRST = UUID.randomUUID();
+    private static final UUID SECOND = UUID.randomUUID();
+
+    private static CachedTextureProvider create(CountingTextureProvider provider, long expireSeconds, long staleSeconds) {
+        CachedTextureProvider cached = new CachedTextureProvider();
+        cached.provider = provider;
+        cached.expireSeconds = expireSeconds;
+        cached.negativeExpireSeconds = expireSeconds;
+        cached.staleSeconds = staleSeconds;
+        return cached;
+    }
+
+    private static String skin(Map<String, Texture> assets) {
+        Texture texture = assets.get("SKIN");
+        return texture == null ? null : texture.url;
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        CountingTextureProvider provider = new CountingTextureProvider();
+        provider.block = new CountDownLatch(1);
+        try (CachedTextureProvider cached = create(provider, 300, 600)) {
+            CompletableFuture<Map<String, Texture>> first = CompletableFuture.supplyAsync(() -> cached.getAssets(FIRST, "first", "client"));
+            Assertions.assertTrue(provider.entered.await(10, TimeUnit.SECONDS));
+            CompletableFuture<Map<String, Texture>> second = CompletableFuture.supplyAsync(() -> cached.getAssets(FIRST, "first", "client"));
+            Thread.sleep(100);
+            provider.block.countDown();
+            Assertions.assertEquals("first-1", skin(first.get(10, TimeUnit.SECONDS)));
+            Assertions.assertEquals("first-1", skin(second.get(10, TimeUnit.SECONDS)));
+            Assertions.assertEquals(1, provider.calls.get());
+        }
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        CountingTextureProvider provider = new CountingTextureProvider();
+        try (CachedTextureProvider cached = create(provider, 300, 600)) {
+            cached.getAssets(FIRST, "first", "client");
+            List<Map<String, Texture>> assets = cached.getAssets(List.of(
+                    new TextureProvider.AssetsRequest(FIRST, "first", "client"),
+                    new TextureProvider.AssetsRequest(SECOND, "second", "client"),
+                    new TextureProvider.AssetsRequest(SECOND, "second", "client")));
+            Assertions.assertEquals(List.of("first-1", "second-2", "second-2"), assets.stream().map(CachedTextureProviderTest::skin).toList());
+            // Only the missing user is requested, once
+            Assertions.assertEquals(List.of(1, 1), provider.batchSizes);
+            // Callers get their own maps
+            assets.get(1).clear();
+            Assertions.assertEquals("second-2", skin(cached.getAssets(SECOND, "second", "client")));
+        }
+    }
+
+    @Test
+    public void staleTest() throws Exception {
+        CountingTextureProvider provider = new CountingTextureProvider();
+        try (CachedTextureProvider cached = create(provider, 0, 600)) {
+            Assertions.assertEquals("first-1", skin(cached.getAssets(FIRST, "first", "client")));
+            provider.entered = new CountDownLatch(1);
+            provider.block = new CountDownLatch(1);
+            // Expired entry is returned at once while the refresh waits in background
+            Assertions.assertEquals("first-1", skin(cached.getAssets(FIRST, "first", "client")));
+            Assertions.assertTrue(provider.entered.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals("first-1", skin(cached.getAssets(FIRST, "first", "client")));
+            // Refresh in progress is not started again
+            Assertions.assertEquals(2, provider.calls.get());
+            provider.block.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!"first-2".equals(skin(cached.getAssets(FIRST, "first", "client")))) {
+                Assertions.assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    public void expiredBeyondStaleTest() throws Exception {
+        CountingTextureProvider provider = new CountingTextureProvider();
+        try (CachedTextureProvider cached = create(provider, 0, 0)) {
+            Assertions.assertEquals("first-1", skin(cached.getAssets(FIRST, "first", "client")));
+            Assertions.assertEquals("first-2", skin(cached.getAssets(FIRST, "first", "client")));
+        }
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        CountingTextureProvider provider = new CountingTextureProvider();
+        provider.fail = true;
+        try (CachedTextureProvider cached = create(provider, 300, 600)) {
+            Assertions.assertThrows(IllegalStateException.class, () -> cached.getAssets(FIRST, "first", "client"));
+            provider.fail = false;
+            // Failures are not cached
+            Assertions.assertEquals("first-2", skin(cached.getAssets(FIRST, "first", "client")));
+        }
+    }
+
+    public static class CountingTextureProvider extends TextureProvider {
+        public final AtomicInteger calls = new AtomicInteger();
+        public final List<Integer> batchSizes = new ArrayList<>();
+        public volatile CountDownLatch entered = new CountDownLatch(1);
+        public volatile CountDownLatch block;
+        public volatile boolean fail;
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public Texture getCloakTexture(UUID uuid, String username, String client) {
+            return null;
+        }
+
+        @Override
+        public Texture getSkinTexture(UUID uuid, String username, String client) {
+            return getAssets(uuid, username, client).get("SKIN");
+        }
+
+        @Override
+        public Map<String, Texture> getAssets(UUID uuid, String username, String client) {
+            synchronized (batchSizes) {
+                batchSizes.add(1);
+            }
+            return load(username);
+        }
+
+        @Override
+        public List<Map<String, Texture>> getAssets(List<AssetsRequest> requests) {
+            synchronized (batchSizes) {
+                batchSizes.add(requests.size());
+            }
+            List<Map<String, Texture>> result = new ArrayList<>();
+            for (AssetsRequest request : requests) {
+                result.add(load(request.username()));
+            }
+            return result;
+        }
+
+        private Map<String, Texture> load(String username) {
+            int call = calls.incrementAndGet();
+            entered.countDown();
+            CountDownLatch latch = block;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (fail) {
+                throw new IllegalStateException("Texture service unavailable");
+            }
+            Map<String, Texture> assets = new HashMap<>();
+            assets.put("SKIN", new Texture(username + "-" + call, null, null));
+            return assets;
+        }
+    }
+}
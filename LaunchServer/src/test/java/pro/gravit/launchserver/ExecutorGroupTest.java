@@ -0,0 +1,67 @@
+package pro.gravit.launchserver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pro.gravit.launchserver.config.LaunchServerConfig.NettyPerformanceConfig.NettyExecutorType;
+import pro.gravit.launchserver.socket.ExecutorGroup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorGroupTest {
+    @Test
+    public void queueBoundTest() throws Exception {
+        ExecutorGroup group = new ExecutorGroup("test", NettyExecutorType.VIRTUAL_THREADS, 2, 3, null);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(2);
+            CountDownLatch finished = new CountDownLatch(5);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            Runnable task = () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    finished.countDown();
+                }
+            };
+            for (int i = 0; i < 5; ++i) {
+                Assertions.assertTrue(group.submit(task));
+            }
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+            Assertions.assertFalse(group.submit(task));
+            ExecutorGroup.Stats stats = group.getStats();
+            Assertions.assertEquals(2, stats.running());
+            Assertions.assertEquals(3, stats.queued());
+            Assertions.assertEquals(1, stats.rejected());
+            release.countDown();
+            Assertions.assertTrue(finished.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(2, maxRunning.get());
+            // Rejected task never runs, a free slot accepts new tasks again
+            Assertions.assertTrue(group.submit(() -> {}));
+        } finally {
+            group.close();
+        }
+    }
+
+    @Test
+    public void inlineTest() {
+        ExecutorGroup group = new ExecutorGroup("inline", NettyExecutorType.NONE, 1, 1, null);
+        Thread caller = Thread.currentThread();
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 3; ++i) {
+            Assertions.assertTrue(group.submit(() -> {
+                Assertions.assertSame(caller, Thread.currentThread());
+                count.incrementAndGet();
+            }));
+        }
+        Assertions.assertEquals(3, count.get());
+        Assertions.assertEquals(0, group.getStats().rejected());
+    }
+}
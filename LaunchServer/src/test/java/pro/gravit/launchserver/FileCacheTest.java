@@ -0,0 +1,145 @@
+package pro.gravit.launchserver;
+
+import io.netty.buffer.ByteBuf;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.base.Launcher;
+import pro.gravit.launchserver.auth.updates.LocalUpdatesProvider;
+import pro.gravit.launchserver.config.LaunchServerConfig;
+import pro.gravit.launchserver.config.LaunchServerRuntimeConfig;
+import pro.gravit.launchserver.impl.TestLaunchServerConfigManager;
+import pro.gravit.launchserver.manangers.CertificateManager;
+import pro.gravit.launchserver.manangers.LaunchServerGsonManager;
+import pro.gravit.launchserver.modules.impl.LaunchServerModulesManager;
+import pro.gravit.launchserver.socket.LauncherNettyServer;
+import pro.gravit.launchserver.socket.handlers.fileserver.FileCache;
+import pro.gravit.utils.command.StdCommandHandler;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Security;
+
+public class FileCacheTest {
+    @TempDir
+    public Path dir;
+
+    private FileCache.CachedFile load(FileCache cache, String key, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = (byte) (key.hashCode() + i);
+        }
+        Path file = dir.resolve(key);
+        Files.write(file, bytes);
+        try (FileChannel channel = FileChannel.open(file)) {
+            return cache.load(key, channel, length, 1000, "application/octet-stream");
+        }
+    }
+
+    private static boolean contains(FileCache cache, String key) {
+        FileCache.CachedFile file = cache.get(key);
+        if (file == null) {
+            return false;
+        }
+        file.content().release();
+        return true;
+    }
+
+    @Test
+    public void lruEvictionTest() throws IOException {
+        FileCache cache = new FileCache(64, 100);
+        Assertions.assertTrue(cache.isCacheable(64));
+        Assertions.assertFalse(cache.isCacheable(65));
+        load(cache, "a", 40).content().release();
+        load(cache, "b", 40).content().release();
+        Assertions.assertEquals(80, cache.size());
+        // Access order decides, so "b" becomes the eldest entry
+        Assertions.assertTrue(contains(cache, "a"));
+        load(cache, "c", 40).content().release();
+        Assertions.assertEquals(80, cache.size());
+        Assertions.assertFalse(contains(cache, "b"));
+        Assertions.assertTrue(contains(cache, "a"));
+        Assertions.assertTrue(contains(cache, "c"));
+        // One large entry evicts as many as needed, never itself
+        load(cache, "d", 64).content().release();
+        Assertions.assertEquals(64, cache.size());
+        Assertions.assertFalse(contains(cache, "a"));
+        Assertions.assertFalse(contains(cache, "c"));
+        Assertions.assertTrue(contains(cache, "d"));
+        // Replacing a key does not count its old size twice
+        load(cache, "d", 30).content().release();
+        Assertions.assertEquals(30, cache.size());
+        cache.invalidate();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void retainedDuplicateTest() throws IOException {
+        FileCache cache = new FileCache(64, 100);
+        FileCache.CachedFile loaded = load(cache, "a", 32);
+        FileCache.CachedFile first = cache.get("a");
+        FileCache.CachedFile second = cache.get("a");
+        try {
+            Assertions.assertEquals(1000, first.lastModified());
+            Assertions.assertEquals("application/octet-stream", first.contentType());
+            // Reading one response does not move the others
+            loaded.content().skipBytes(32);
+            first.content().readBytes(new byte[10]);
+            Assertions.assertEquals(22, first.content().readableBytes());
+            Assertions.assertEquals(32, second.content().readableBytes());
+            Assertions.assertEquals(0, second.content().readerIndex());
+            FileCache.CachedFile third = cache.get("a");
+            Assertions.assertEquals(32, third.content().readableBytes());
+            third.content().release();
+        } finally {
+            loaded.content().release();
+            first.content().release();
+        }
+        // Entries taken before the invalidation stay readable until released
+        ByteBuf content = second.content();
+        cache.invalidate();
+        Assertions.assertEquals(1, content.refCnt());
+        Assertions.assertEquals((byte) "a".hashCode(), content.getByte(0));
+        Assertions.assertTrue(content.release());
+        Assertions.assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void syncInvalidationTest() throws Throwable {
+        if (Security.getProvider("BC") == null) Security.addProvider(new BouncyCastleProvider());
+        Path serverDir = Files.createDirectories(dir.resolve("server"));
+        LaunchServerModulesManager modulesManager = new LaunchServerModulesManager(Files.createDirectories(dir.resolve("modules")),
+                Files.createDirectories(dir.resolve("config")), null);
+        LaunchServerConfig config = LaunchServerConfig.getDefault(LaunchServer.LaunchServerEnv.TEST);
+        LocalUpdatesProvider updatesProvider = Assertions.assertInstanceOf(LocalUpdatesProvider.class, config.updatesProvider);
+        updatesProvider.cacheFile = serverDir.resolve(".updates-cache").toString();
+        updatesProvider.hashCacheFile = serverDir.resolve(".updates-hash-cache").toString();
+        Launcher.gsonManager = new LaunchServerGsonManager(modulesManager);
+        Launcher.gsonManager.initGson();
+        LaunchServer launchServer = new LaunchServerBuilder()
+                .setDir(serverDir)
+                .setEnv(LaunchServer.LaunchServerEnv.TEST)
+                .setConfig(config)
+                .setRuntimeConfig(new LaunchServerRuntimeConfig())
+                .setCertificateManager(new CertificateManager())
+                .setLaunchServerConfigManager(new TestLaunchServerConfigManager())
+                .setModulesManager(modulesManager)
+                .setCommandHandler(new StdCommandHandler(false))
+                .build();
+        try {
+            launchServer.nettyServerSocketHandler.nettyServer = new LauncherNettyServer(launchServer);
+            FileCache cache = launchServer.nettyServerSocketHandler.nettyServer.fileCache;
+            Assertions.assertNotNull(cache);
+            load(cache, "a", 32).content().release();
+            Assertions.assertTrue(contains(cache, "a"));
+            launchServer.config.updatesProvider.sync();
+            Assertions.assertEquals(0, cache.size());
+            Assertions.assertFalse(contains(cache, "a"));
+        } finally {
+            launchServer.close();
+        }
+    }
+}
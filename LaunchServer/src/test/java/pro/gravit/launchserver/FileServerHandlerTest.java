@@ -0,0 +1,331 @@
+package pro.gravit.launchserver;
+
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launchserver.auth.updates.UpdatesProvider;
+import pro.gravit.launchserver.socket.handlers.fileserver.FileServerHandler;
+import pro.gravit.utils.helper.SecurityHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+public class FileServerHandlerTest {
+    private static final int FILE_LENGTH = 100;
+    @TempDir
+    public static Path dir;
+    private static byte[] data;
+    private static String hex;
+    private static byte[] compressed;
+
+    @BeforeAll
+    public static void prepare() throws Exception {
+        data = new byte[FILE_LENGTH];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        Files.write(dir.resolve("file.bin"), data);
+        hex = SecurityHelper.toHex(SecurityHelper.digest(SecurityHelper.DigestAlgorithm.SHA1, data));
+        Files.createDirectories(dir.resolve("objects"));
+        Files.write(dir.resolve("objects").resolve(hex), data);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data);
+        }
+        compressed = output.toByteArray();
+        Files.write(dir.resolve("file.bin.gz"), compressed);
+    }
+
+    @Test
+    public void suffixRangeTest() {
+        Result result = get("bytes=-10", null);
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertEquals("bytes 90-99/100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        Assertions.assertArrayEquals(slice(90, 99), result.body);
+        // Suffix longer than the file selects all of it
+        result = get("bytes=-500", null);
+        Assertions.assertEquals("bytes 0-99/100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        Assertions.assertArrayEquals(data, result.body);
+    }
+
+    @Test
+    public void overlappingRangesTest() {
+        Result result = get("bytes=40-59,0-49,60-64", null);
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertEquals("bytes 0-64/100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        Assertions.assertArrayEquals(slice(0, 64), result.body);
+    }
+
+    @Test
+    public void multipartRangesTest() {
+        Result result = get("bytes=50-59,0-9", null);
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        String contentType = result.response.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        Assertions.assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        Assertions.assertEquals(result.body.length, HttpUtil.getContentLength(result.response));
+        String body = new String(result.body, StandardCharsets.ISO_8859_1);
+        Assertions.assertTrue(body.endsWith("\r\n--" + boundary + "--\r\n"));
+        int first = body.indexOf("content-range: bytes 0-9/100\r\n\r\n");
+        int second = body.indexOf("content-range: bytes 50-59/100\r\n\r\n");
+        Assertions.assertTrue(first >= 0 && second > first);
+        String firstPart = body.substring(body.indexOf("\r\n\r\n", first) + 4, body.indexOf("\r\n--", first));
+        Assertions.assertArrayEquals(slice(0, 9), firstPart.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void tooManyRangesTest() {
+        StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i < 17; ++i) {
+            header.append(i == 0 ? "" : ",").append(i * 5).append('-').append(i * 5 + 1);
+        }
+        Result result = get(header.toString(), null);
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertArrayEquals(data, result.body);
+    }
+
+    @Test
+    public void unsatisfiableRangeTest() {
+        Result result = get("bytes=100-200", null);
+        Assertions.assertEquals(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, result.response.status());
+        Assertions.assertEquals("bytes */100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+    }
+
+    @Test
+    public void ifRangeTest() {
+        String lastModified = FileServerHandler.dateFormatter.format(Instant.ofEpochMilli(dir.resolve("file.bin").toFile().lastModified()));
+        Result result = get("bytes=0-9", lastModified);
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertArrayEquals(slice(0, 9), result.body);
+        result = get("bytes=0-9", "Thu, 01 Jan 1970 00:00:00 UTC");
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertArrayEquals(data, result.body);
+        // No entity tag without an updates provider, so an entity tag never matches
+        result = get("bytes=0-9", "\"0123\"");
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+    }
+
+    @Test
+    public void entityTagNotModifiedTest() {
+        StubUpdatesProvider provider = new StubUpdatesProvider();
+        provider.digests.put("file.bin", hex);
+        Result result = send(provider, "/file.bin", Map.of());
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertEquals("\"" + hex + "\"", result.response.headers().get(HttpHeaderNames.ETAG));
+        Assertions.assertEquals("private, max-age=" + FileServerHandler.HTTP_CACHE_SECONDS, result.response.headers().get(HttpHeaderNames.CACHE_CONTROL));
+        Assertions.assertArrayEquals(data, result.body);
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.IF_NONE_MATCH, "\"other\", W/\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.NOT_MODIFIED, result.response.status());
+        Assertions.assertEquals("\"" + hex + "\"", result.response.headers().get(HttpHeaderNames.ETAG));
+        Assertions.assertEquals(0, result.body.length);
+        // Known digest is answered without looking for the file
+        provider.digests.put("missing.bin", hex);
+        result = send(provider, "/missing.bin", Map.of(HttpHeaderNames.IF_NONE_MATCH, "\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.NOT_MODIFIED, result.response.status());
+        // Other tag sends the file, If-None-Match wins over a matching If-Modified-Since
+        String lastModified = FileServerHandler.dateFormatter.format(Instant.ofEpochMilli(dir.resolve("file.bin").toFile().lastModified()));
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.IF_NONE_MATCH, "\"other\"", HttpHeaderNames.IF_MODIFIED_SINCE, lastModified));
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertArrayEquals(data, result.body);
+    }
+
+    @Test
+    public void immutableCacheControlTest() {
+        StubUpdatesProvider provider = new StubUpdatesProvider();
+        provider.digests.put("objects/" + hex, hex);
+        Result result = send(provider, "/objects/" + hex, Map.of());
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertEquals("public, max-age=31536000, immutable", result.response.headers().get(HttpHeaderNames.CACHE_CONTROL));
+        Assertions.assertArrayEquals(data, result.body);
+        result = send(provider, "/objects/" + hex, Map.of(HttpHeaderNames.IF_NONE_MATCH, "\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.NOT_MODIFIED, result.response.status());
+        Assertions.assertEquals("public, max-age=31536000, immutable", result.response.headers().get(HttpHeaderNames.CACHE_CONTROL));
+        // Same content under a name that is not its digest may change later
+        provider.digests.put("file.bin", hex);
+        result = send(provider, "/file.bin", Map.of());
+        Assertions.assertEquals("private, max-age=" + FileServerHandler.HTTP_CACHE_SECONDS, result.response.headers().get(HttpHeaderNames.CACHE_CONTROL));
+    }
+
+    @Test
+    public void ifRangeEntityTagTest() {
+        StubUpdatesProvider provider = new StubUpdatesProvider();
+        provider.digests.put("file.bin", hex);
+        Result result = send(provider, "/file.bin", Map.of(HttpHeaderNames.RANGE, "bytes=10-19", HttpHeaderNames.IF_RANGE, "\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertEquals("bytes 10-19/100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        Assertions.assertArrayEquals(slice(10, 19), result.body);
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.RANGE, "bytes=10-19", HttpHeaderNames.IF_RANGE, "\"other\""));
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        Assertions.assertArrayEquals(data, result.body);
+        // If-Range needs a strong comparison
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.RANGE, "bytes=10-19", HttpHeaderNames.IF_RANGE, "W/\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+    }
+
+    @Test
+    public void gzipVariantTest() {
+        StubUpdatesProvider provider = new StubUpdatesProvider();
+        provider.digests.put("file.bin", hex);
+        provider.variants.put(hex, dir.resolve("file.bin.gz"));
+        for (String acceptEncoding : new String[]{"gzip", "deflate, gzip;q=0.5", "*", "GZIP"}) {
+            Result result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding));
+            Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+            Assertions.assertEquals("gzip", result.response.headers().get(HttpHeaderNames.CONTENT_ENCODING), acceptEncoding);
+            Assertions.assertEquals("\"" + hex + "-gzip\"", result.response.headers().get(HttpHeaderNames.ETAG));
+            Assertions.assertEquals(HttpHeaderNames.ACCEPT_ENCODING.toString(), result.response.headers().get(HttpHeaderNames.VARY));
+            Assertions.assertArrayEquals(compressed, result.body);
+        }
+        for (String acceptEncoding : new String[]{"gzip;q=0", "identity", "deflate, br"}) {
+            Result result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding));
+            Assertions.assertNull(result.response.headers().get(HttpHeaderNames.CONTENT_ENCODING), acceptEncoding);
+            Assertions.assertEquals("\"" + hex + "\"", result.response.headers().get(HttpHeaderNames.ETAG));
+            Assertions.assertEquals(HttpHeaderNames.ACCEPT_ENCODING.toString(), result.response.headers().get(HttpHeaderNames.VARY));
+            Assertions.assertArrayEquals(data, result.body);
+        }
+        // Each variant is validated by its own entity tag
+        Result result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, "gzip", HttpHeaderNames.IF_NONE_MATCH, "\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.OK, result.response.status());
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, "gzip", HttpHeaderNames.IF_NONE_MATCH, "\"" + hex + "-gzip\""));
+        Assertions.assertEquals(HttpResponseStatus.NOT_MODIFIED, result.response.status());
+        Assertions.assertEquals("\"" + hex + "-gzip\"", result.response.headers().get(HttpHeaderNames.ETAG));
+    }
+
+    @Test
+    public void gzipVariantRangeTest() {
+        StubUpdatesProvider provider = new StubUpdatesProvider();
+        provider.digests.put("file.bin", hex);
+        provider.variants.put(hex, dir.resolve("file.bin.gz"));
+        // Ranges always address the identity representation
+        Result result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, "gzip", HttpHeaderNames.RANGE, "bytes=10-19"));
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertNull(result.response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        Assertions.assertEquals("bytes 10-19/100", result.response.headers().get(HttpHeaderNames.CONTENT_RANGE));
+        Assertions.assertArrayEquals(slice(10, 19), result.body);
+        result = send(provider, "/file.bin", Map.of(HttpHeaderNames.ACCEPT_ENCODING, "gzip", HttpHeaderNames.RANGE, "bytes=10-19", HttpHeaderNames.IF_RANGE, "\"" + hex + "\""));
+        Assertions.assertEquals(HttpResponseStatus.PARTIAL_CONTENT, result.response.status());
+        Assertions.assertArrayEquals(slice(10, 19), result.body);
+    }
+
+    private static byte[] slice(int start, int end) {
+        byte[] bytes = new byte[end - start + 1];
+        System.arraycopy(data, start, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static Result get(String range, String ifRange) {
+        Map<CharSequence, String> headers = new HashMap<>();
+        headers.put(HttpHeaderNames.RANGE, range);
+        if (ifRange != null) {
+            headers.put(HttpHeaderNames.IF_RANGE, ifRange);
+        }
+        return send(null, "/file.bin", headers);
+    }
+
+    private static Result send(UpdatesProvider provider, String uri, Map<CharSequence, String> headers) {
+        // File regions are read as they are written, the file is closed once the response ends
+        BodyCapture capture = new BodyCapture();
+        EmbeddedChannel channel = new EmbeddedChannel(capture, new FileServerHandler(dir, false, false, provider, null));
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        headers.forEach((name, value) -> request.headers().set(name, value));
+        channel.writeInbound(request);
+        channel.finishAndReleaseAll();
+        Assertions.assertNotNull(capture.response);
+        return new Result(capture.response, capture.body.toByteArray());
+    }
+
+    private record Result(HttpResponse response, byte[] body) {
+    }
+
+    private static class BodyCapture extends ChannelOutboundHandlerAdapter {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private HttpResponse response;
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (msg instanceof HttpResponse httpResponse) {
+                response = httpResponse;
+            }
+            if (msg instanceof FileRegion region) {
+                WritableByteChannel target = Channels.newChannel(body);
+                long written = 0;
+                while (written < region.count()) {
+                    written += region.transferTo(target, written);
+                }
+            } else if (msg instanceof ByteBufHolder holder) {
+                byte[] bytes = new byte[holder.content().readableBytes()];
+                holder.content().getBytes(holder.content().readerIndex(), bytes);
+                body.writeBytes(bytes);
+            }
+            ctx.write(msg, promise);
+        }
+    }
+
+    public static class StubUpdatesProvider extends UpdatesProvider {
+        public final Map<String, String> digests = new HashMap<>();
+        public final Map<String, Path> variants = new HashMap<>();
+
+        @Override
+        public byte[] getFileDigest(String path) {
+            String digest = digests.get(path);
+            return digest == null ? null : SecurityHelper.fromHex(digest);
+        }
+
+        @Override
+        public Path getPrecompressedFile(String digest, String encoding) {
+            return encoding.equals("gzip") ? variants.get(digest) : null;
+        }
+
+        @Override
+        public void syncInitially() {
+        }
+
+        @Override
+        public void sync(Collection<String> updateNames) {
+        }
+
+        @Override
+        public HashedDir getUpdatesDir(String updateName) {
+            return null;
+        }
+
+        @Override
+        public void upload(String updateName, Map<String, Path> files, boolean deleteAfterUpload) {
+        }
+
+        @Override
+        public Map<String, Path> download(String updateName, List<String> files) {
+            return Map.of();
+        }
+
+        @Override
+        public void delete(String updateName, List<String> files) {
+        }
+
+        @Override
+        public void delete(String updateName) {
+        }
+
+        @Override
+        public void create(String updateName) {
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package pro.gravit.launchserver;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pro.gravit.launchserver.config.LaunchServerConfig.NettyOverloadConfig;
+import pro.gravit.launchserver.socket.OverloadController;
+
+import java.util.concurrent.TimeUnit;
+
+public class OverloadControllerTest {
+    private static final long INTERVAL_MILLIS = 100;
+    private static final long TARGET_MILLIS = 10;
+
+    private static OverloadController create(int maxInFlight) {
+        NettyOverloadConfig config = new NettyOverloadConfig();
+        config.maxInFlight = maxInFlight;
+        config.targetQueueDelayMillis = TARGET_MILLIS;
+        config.intervalMillis = INTERVAL_MILLIS;
+        return new OverloadController(config);
+    }
+
+    private static void finishInterval(OverloadController controller, long sojournMillis) throws InterruptedException {
+        controller.recordSojourn(TimeUnit.MILLISECONDS.toNanos(sojournMillis));
+        Thread.sleep(INTERVAL_MILLIS + 20);
+        controller.recordSojourn(TimeUnit.MILLISECONDS.toNanos(sojournMillis));
+    }
+
+    @Test
+    public void sojournSheddingTest() throws Exception {
+        OverloadController controller = create(0);
+        Assertions.assertTrue(controller.tryAdmit("auth"));
+        controller.complete();
+        finishInterval(controller, TARGET_MILLIS * 2);
+        Assertions.assertTrue(controller.isOverloaded());
+        Assertions.assertFalse(controller.tryAdmit("auth"));
+        // Only low priority requests are shed
+        Assertions.assertTrue(controller.tryAdmit("getAvailabilityAuth"));
+        controller.complete();
+        Assertions.assertEquals(1, controller.getShedCount());
+        Assertions.assertEquals(0, controller.getInFlight());
+        finishInterval(controller, 1);
+        Assertions.assertFalse(controller.isOverloaded());
+        Assertions.assertTrue(controller.tryAdmit("auth"));
+        controller.complete();
+    }
+
+    @Test
+    public void singleFastRequestTest() throws Exception {
+        OverloadController controller = create(0);
+        // The minimum of the interval decides, one request without a queue means the queue drains
+        controller.recordSojourn(TimeUnit.MILLISECONDS.toNanos(TARGET_MILLIS * 5));
+        controller.recordSojourn(TimeUnit.MILLISECONDS.toNanos(1));
+        finishInterval(controller, TARGET_MILLIS * 5);
+        Assertions.assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void staleSojournTest() throws Exception {
+        OverloadController controller = create(0);
+        finishInterval(controller, TARGET_MILLIS * 2);
+        Assertions.assertTrue(controller.isOverloaded());
+        // Nothing measured for two intervals, the old verdict is dropped
+        Thread.sleep(INTERVAL_MILLIS * 2 + 20);
+        Assertions.assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void inFlightTest() {
+        OverloadController controller = create(2);
+        Assertions.assertTrue(controller.tryAdmit("auth"));
+        Assertions.assertTrue(controller.tryAdmit("auth"));
+        Assertions.assertTrue(controller.isOverloaded());
+        Assertions.assertFalse(controller.tryAdmit("auth"));
+        controller.complete();
+        Assertions.assertFalse(controller.isOverloaded());
+        Assertions.assertTrue(controller.tryAdmit("auth"));
+    }
+}
@@ -0,0 +1,131 @@
+package pro.gravit.launchserver;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.launchserver.socket.ResponseCache;
+import pro.gravit.utils.CborJsonWriter;
+import pro.gravit.utils.CborReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ResponseCacheTest {
+    private static final Gson gson = new Gson();
+
+    private static WebSocketFrame encode(RequestEvent event, boolean binary) {
+        ByteBuf buf = Unpooled.buffer();
+        if (!binary) {
+            buf.writeCharSequence(gson.toJson(event), StandardCharsets.UTF_8);
+            return new TextWebSocketFrame(buf);
+        }
+        try (CborJsonWriter writer = new CborJsonWriter(new ByteBufOutputStream(buf))) {
+            gson.toJson(event, TestEvent.class, writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new BinaryWebSocketFrame(buf);
+    }
+
+    private static JsonObject decode(WebSocketFrame frame) throws IOException {
+        try {
+            if (frame instanceof TextWebSocketFrame textFrame) {
+                return JsonParser.parseString(textFrame.text()).getAsJsonObject();
+            }
+            Assertions.assertInstanceOf(BinaryWebSocketFrame.class, frame);
+            ByteBufInputStream input = new ByteBufInputStream(frame.content().duplicate());
+            JsonElement element = CborReader.parse(input);
+            // The spliced object must end where the frame ends
+            Assertions.assertEquals(0, input.available());
+            return element.getAsJsonObject();
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static void assertSplice(boolean binary) throws IOException {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger created = new AtomicInteger();
+        Function<RequestEvent, WebSocketFrame> encoder = event -> encode(event, binary);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        for (UUID requestUUID : new UUID[]{first, second, null}) {
+            WebSocketFrame frame = cache.get("test", binary, requestUUID, () -> {
+                created.incrementAndGet();
+                TestEvent event = new TestEvent("value");
+                event.requestUUID = UUID.randomUUID();
+                return event;
+            }, encoder);
+            JsonObject object = decode(frame);
+            Assertions.assertEquals("value", object.get("value").getAsString());
+            Assertions.assertEquals(2, object.get("list").getAsJsonArray().size());
+            if (requestUUID == null) {
+                Assertions.assertFalse(object.has("requestUUID"));
+            } else {
+                Assertions.assertEquals(requestUUID.toString(), object.get("requestUUID").getAsString());
+            }
+        }
+        Assertions.assertEquals(1, created.get());
+        cache.invalidate();
+    }
+
+    @Test
+    public void jsonSpliceTest() throws IOException {
+        assertSplice(false);
+    }
+
+    @Test
+    public void cborSpliceTest() throws IOException {
+        assertSplice(true);
+    }
+
+    @Test
+    public void invalidateTest() throws IOException {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger created = new AtomicInteger();
+        // Text and binary encodings are cached separately
+        decode(cache.get("test", false, null, () -> new TestEvent(String.valueOf(created.incrementAndGet())), e -> encode(e, false)));
+        decode(cache.get("test", true, null, () -> new TestEvent(String.valueOf(created.incrementAndGet())), e -> encode(e, true)));
+        Assertions.assertEquals(2, created.get());
+        WebSocketFrame held = cache.get("test", false, UUID.randomUUID(), () -> new TestEvent("unused"), e -> encode(e, false));
+        cache.invalidate();
+        // Frames taken before the invalidation stay readable
+        Assertions.assertEquals("1", decode(held).get("value").getAsString());
+        Assertions.assertEquals("3", decode(cache.get("test", false, null, () -> new TestEvent(String.valueOf(created.incrementAndGet())), e -> encode(e, false))).get("value").getAsString());
+        // An event created while the cache is invalidated is sent once but not stored
+        Assertions.assertEquals("4", decode(cache.get("other", false, null, () -> {
+            cache.invalidate();
+            return new TestEvent(String.valueOf(created.incrementAndGet()));
+        }, e -> encode(e, false))).get("value").getAsString());
+        Assertions.assertEquals("5", decode(cache.get("other", false, null, () -> new TestEvent(String.valueOf(created.incrementAndGet())), e -> encode(e, false))).get("value").getAsString());
+        cache.invalidate();
+    }
+
+    public static class TestEvent extends RequestEvent {
+        public String value;
+        public String[] list = new String[]{"a", "b"};
+
+        public TestEvent(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getType() {
+            return "test";
+        }
+    }
+}
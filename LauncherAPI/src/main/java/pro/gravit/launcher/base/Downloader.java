@@ -8,13 +8,17 @@
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
@@ -29,12 +33,15 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 public class Downloader {
     @LauncherInject("launcher.certificatePinning")
     private static boolean isCertificatePinning;
     @LauncherInject("launcher.noHttp2")
     private static boolean isNoHttp2;
+    @LauncherInject("launcher.noDownloadCompression")
+    private static boolean isNoDownloadCompression;
     private static volatile SSLSocketFactory sslSocketFactory;
     private static volatile SSLContext sslContext;
     protected final HttpClient client;
@@ -247,15 +254,47 @@ protected HttpRequest makeHttpRequest(URI baseUri, String filePath) throws URISy
         } else {
             uri = new URI(filePath);
         }
-        return HttpRequest.newBuilder()
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .GET()
                 .uri(uri)
-                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/45.0.2454.85 Safari/537.36")
-                .build();
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/45.0.2454.85 Safari/537.36");
+        if (!isNoDownloadCompression) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        return builder.build();
     }
 
     protected ProgressTrackingBodyHandler<Path> makeBodyHandler(Path file, DownloadCallback callback) {
-        return new ProgressTrackingBodyHandler<>(HttpResponse.BodyHandlers.ofFile(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), callback);
+        return new ProgressTrackingBodyHandler<>((responseInfo) -> {
+            if (responseInfo.headers().firstValue("Content-Encoding").filter("gzip"::equalsIgnoreCase).isEmpty()) {
+                return HttpResponse.BodySubscribers.ofFile(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            Path compressed = file.resolveSibling(file.getFileName().toString().concat(".gz-part"));
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofFile(compressed, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                    (path) -> decompress(path, file, callback));
+        }, callback);
+    }
+
+    /**
+     * Unpacks a gzip encoded body. Progress is reported in compressed bytes while receiving,
+     * so the difference is reported afterwards to keep totals equal to the file sizes
+     */
+    private static Path decompress(Path compressed, Path file, DownloadCallback callback) {
+        try {
+            long compressedSize = Files.size(compressed);
+            long size;
+            try (InputStream input = new GZIPInputStream(IOHelper.newInput(compressed))) {
+                size = Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(compressed);
+            }
+            if (callback != null) {
+                callback.apply(size - compressedSize);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public interface DownloadCallback {
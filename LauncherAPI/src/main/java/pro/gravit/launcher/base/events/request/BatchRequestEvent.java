@@ -0,0 +1,27 @@
+package pro.gravit.launcher.base.events.request;
+
+import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.launcher.base.request.WebSocketEvent;
+import pro.gravit.launcher.core.LauncherNetworkAPI;
+
+import java.util.List;
+
+public class BatchRequestEvent extends RequestEvent {
+    /**
+     * Results of the batched requests, each with the requestUUID of its request
+     */
+    @LauncherNetworkAPI
+    public List<WebSocketEvent> results;
+
+    public BatchRequestEvent() {
+    }
+
+    public BatchRequestEvent(List<WebSocketEvent> results) {
+        this.results = results;
+    }
+
+    @Override
+    public String getType() {
+        return "batch";
+    }
+}
@@ -10,6 +10,11 @@ public class ErrorRequestEvent extends RequestEvent {
     public static UUID uuid = UUID.fromString("0af22bc7-aa01-4881-bdbb-dc62b3cdac96");
     @LauncherNetworkAPI
     public final String error;
+    /**
+     * Milliseconds after which a retry may succeed, set only for temporary errors such as overload
+     */
+    @LauncherNetworkAPI
+    public Long retryAfter;
 
     public ErrorRequestEvent(String error) {
         this.error = error;
@@ -1,18 +1,59 @@
 package pro.gravit.launcher.base.events.request;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import pro.gravit.launcher.core.LauncherNetworkAPI;
 import pro.gravit.launcher.base.events.RequestEvent;
 import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.serialize.HInput;
+import pro.gravit.launcher.core.serialize.HOutput;
+import pro.gravit.utils.helper.SecurityHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 public class UpdateRequestEvent extends RequestEvent {
     @LauncherNetworkAPI
-    public final HashedDir hdir;
+    public HashedDir hdir;
     @LauncherNetworkAPI
     public final boolean zip;
     @LauncherNetworkAPI
     public String url;
     @LauncherNetworkAPI
     public boolean fullDownload;
+    /**
+     * Base64 of deflated {@link HashedDir#write(HOutput)} output, sent instead of {@link #hdir}
+     * when the client asked for compact encoding. Decoded into {@link #hdir} by {@link CompactAdapterFactory}
+     */
+    @LauncherNetworkAPI
+    public String compactHdir;
+    /**
+     * Version of the full dir on the server, null if the server does not support versioning
+     */
+    @LauncherNetworkAPI
+    public String version;
+    /**
+     * The dir did not change since the version sent in request, {@link #hdir} is null
+     */
+    @LauncherNetworkAPI
+    public boolean unchanged;
+    /**
+     * If not null, {@link #hdir} contains only changed entries relative to this version
+     */
+    @LauncherNetworkAPI
+    public String baseVersion;
+    @LauncherNetworkAPI
+    public List<String> removed;
 
     public UpdateRequestEvent(HashedDir hdir) {
         this.hdir = hdir;
@@ -31,8 +72,84 @@ public UpdateRequestEvent(HashedDir hdir, String url, boolean zip) {
         this.zip = zip;
     }
 
+    public static UpdateRequestEvent compact(String compactHdir, String url, boolean zip) {
+        UpdateRequestEvent event = new UpdateRequestEvent(null, url, zip);
+        event.compactHdir = compactHdir;
+        return event;
+    }
+
+    public static String versionOf(HashedDir hdir) {
+        byte[] digest = hdir == null ? null : hdir.getDigest();
+        return digest == null ? null : SecurityHelper.toHex(digest);
+    }
+
+    /**
+     * Returns the full dir described by this event
+     *
+     * @param base dir of the version sent in request, may be null if no version was sent
+     */
+    public HashedDir resolve(HashedDir base) {
+        if (!unchanged && baseVersion == null) {
+            return hdir;
+        }
+        if (base == null) {
+            throw new IllegalStateException("Base dir required for unchanged or delta update");
+        }
+        HashedDir result = unchanged ? base : base.applyDelta(hdir, removed);
+        String resultVersion = versionOf(result);
+        if (version != null && resultVersion != null && !version.equals(resultVersion)) {
+            throw new IllegalStateException("Dir version mismatch: expected %s, got %s".formatted(version, resultVersion));
+        }
+        return result;
+    }
+
+    public static String encodeHashedDir(HashedDir hdir) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (HOutput output = new HOutput(new DeflaterOutputStream(stream))) {
+            hdir.write(output);
+        }
+        return Base64.getEncoder().encodeToString(stream.toByteArray());
+    }
+
+    public static HashedDir decodeHashedDir(String compactHdir) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(compactHdir);
+        try (HInput input = new HInput(new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            return new HashedDir(input);
+        }
+    }
+
     @Override
     public String getType() {
         return "update";
     }
+
+    public static class CompactAdapterFactory implements TypeAdapterFactory {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != UpdateRequestEvent.class) {
+                return null;
+            }
+            TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+            return new TypeAdapter<>() {
+                @Override
+                public void write(JsonWriter out, T value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public T read(JsonReader in) throws IOException {
+                    T value = delegate.read(in);
+                    if (value instanceof UpdateRequestEvent event && event.hdir == null && event.compactHdir != null) {
+                        try {
+                            event.hdir = decodeHashedDir(event.compactHdir);
+                        } catch (IOException | IllegalArgumentException e) {
+                            throw new JsonParseException("Invalid compact hdir", e);
+                        }
+                        event.compactHdir = null;
+                    }
+                    return value;
+                }
+            };
+        }
+    }
 }
@@ -24,6 +24,8 @@ public void injectToHashedDir(HashedDir dir) {
                 HashedDir.FindRecursiveResult secondPath = dir.findRecursive(v);
                 LogHelper.dev("Debug findRecursive: name %s, parent: ", secondPath.name, secondPath.parent == null ? "null" : "not null", secondPath.entry == null ? "null" : "not null");
                 firstPath.parent.moveTo(firstPath.name, secondPath.parent, secondPath.name);
+                dir.invalidateDigest(k);
+                dir.invalidateDigest(v);
             }
         });
     }
@@ -33,6 +35,7 @@ public void disableInHashedDir(HashedDir dir) {
         files.forEach((k, v) -> {
             HashedDir.FindRecursiveResult firstPath = dir.findRecursive(k);
             firstPath.parent.remove(firstPath.name);
+            dir.invalidateDigest(k);
         });
     }
 }
@@ -0,0 +1,31 @@
+package pro.gravit.launcher.base.request;
+
+import pro.gravit.launcher.base.events.request.BatchRequestEvent;
+import pro.gravit.launcher.base.request.websockets.WebSocketRequest;
+import pro.gravit.launcher.core.LauncherNetworkAPI;
+
+import java.util.List;
+
+/**
+ * Several requests in one round trip. Prefer {@link pro.gravit.launcher.base.request.websockets.StdWebSocketService#requestBatch(List, boolean)},
+ * which also completes the futures of the nested requests
+ */
+public class BatchRequest extends Request<BatchRequestEvent> {
+    @LauncherNetworkAPI
+    public final List<WebSocketRequest> requests;
+    /**
+     * Execute nested requests concurrently instead of in order
+     */
+    @LauncherNetworkAPI
+    public final boolean parallel;
+
+    public BatchRequest(List<WebSocketRequest> requests, boolean parallel) {
+        this.requests = requests;
+        this.parallel = parallel;
+    }
+
+    @Override
+    public String getType() {
+        return "batch";
+    }
+}
@@ -4,20 +4,36 @@
 
 public final class RequestException extends IOException {
     private static final long serialVersionUID = 7558237657082664821L;
+    private final Long retryAfter;
 
 
     public RequestException(String message) {
         super(message);
+        this.retryAfter = null;
+    }
+
+    public RequestException(String message, Long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
     }
 
 
     public RequestException(String message, Throwable exc) {
         super(message, exc);
+        this.retryAfter = null;
     }
 
 
     public RequestException(Throwable exc) {
         super(exc);
+        this.retryAfter = null;
+    }
+
+    /**
+     * @return milliseconds after which the request may be retried or null if the error is not temporary
+     */
+    public Long getRetryAfter() {
+        return retryAfter;
     }
 
     @Override
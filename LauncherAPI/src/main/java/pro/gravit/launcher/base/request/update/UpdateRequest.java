@@ -10,9 +10,26 @@ public final class UpdateRequest extends Request<UpdateRequestEvent> implements
     // Instance
     @LauncherNetworkAPI
     public final String dirName;
+    @LauncherNetworkAPI
+    public final boolean compact;
+    /**
+     * Version of the dir already known by the client, see {@link UpdateRequestEvent#resolve}
+     */
+    @LauncherNetworkAPI
+    public final String knownVersion;
 
     public UpdateRequest(String dirName) {
+        this(dirName, true);
+    }
+
+    public UpdateRequest(String dirName, boolean compact) {
+        this(dirName, compact, null);
+    }
+
+    public UpdateRequest(String dirName, boolean compact, String knownVersion) {
         this.dirName = dirName;
+        this.compact = compact;
+        this.knownVersion = knownVersion;
     }
 
     @Override
@@ -5,10 +5,12 @@
 import pro.gravit.utils.helper.LogHelper;
 
 import javax.net.ssl.SSLException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -21,6 +23,9 @@
 public abstract class ClientJSONPoint implements WebSocket.Listener {
     @LauncherInject("launcher.certificatePinning")
     private static boolean isCertificatePinning;
+    @LauncherInject("launcher.binaryProtocol")
+    private static boolean isBinaryProtocol;
+    public static final String BINARY_SUBPROTOCOL = "cbor";
     private static final AtomicInteger counter = new AtomicInteger();
     private final URI uri;
     public boolean isClosed;
@@ -32,6 +37,7 @@ public abstract class ClientJSONPoint implements WebSocket.Listener {
     private final Object syncObject = new Object();
     private final Object sendSyncObject = new Object();
     private volatile StringBuilder builder = new StringBuilder();
+    private ByteArrayOutputStream binaryBuilder;
 
     public ClientJSONPoint(final String uri) throws SSLException {
         this(URI.create(uri));
@@ -56,7 +62,12 @@ public ClientJSONPoint(URI uri) {
                 httpClientBuilder = httpClientBuilder.sslContext(Downloader.makeSSLContext());
             }
             httpClient = httpClientBuilder.build();
-            webSocketBuilder = httpClient.newWebSocketBuilder().connectTimeout(Duration.ofSeconds(30));
+            var wsBuilder = httpClient.newWebSocketBuilder().connectTimeout(Duration.ofSeconds(30));
+            if (isBinaryProtocol) {
+                // Servers without support don't select it and keep using JSON text
+                wsBuilder = wsBuilder.subprotocols(BINARY_SUBPROTOCOL);
+            }
+            webSocketBuilder = wsBuilder;
         } catch (NoSuchAlgorithmException | CertificateException | KeyStoreException | IOException |
                  KeyManagementException e) {
             throw new RuntimeException(e);
@@ -91,6 +102,24 @@ public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean
         return WebSocket.Listener.super.onText(webSocket, data, last);
     }
 
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+        synchronized (syncObject) {
+            if (binaryBuilder == null) {
+                binaryBuilder = new ByteArrayOutputStream();
+            }
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            binaryBuilder.writeBytes(bytes);
+            if (last) {
+                byte[] message = binaryBuilder.toByteArray();
+                binaryBuilder = null;
+                onBinaryMessage(message);
+            }
+        }
+        return WebSocket.Listener.super.onBinary(webSocket, data, last);
+    }
+
     @Override
     public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
         onDisconnect(statusCode, reason);
@@ -108,8 +137,21 @@ public void send(String text) {
         webSocket.sendText(text, true);
     }
 
+    public void send(byte[] data) {
+        webSocket.sendBinary(ByteBuffer.wrap(data), true);
+    }
+
+    /**
+     * @return true if the server accepted the {@link #BINARY_SUBPROTOCOL} and messages are sent in CBOR
+     */
+    public boolean isBinary() {
+        return webSocket != null && BINARY_SUBPROTOCOL.equals(webSocket.getSubprotocol());
+    }
+
     abstract void onMessage(String message);
 
+    abstract void onBinaryMessage(byte[] message);
+
     abstract void onDisconnect(int statusCode, String reason);
 
     abstract void onOpen();
@@ -2,6 +2,8 @@
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
 import pro.gravit.launcher.base.Launcher;
 import pro.gravit.launcher.base.events.NotificationEvent;
 import pro.gravit.launcher.base.events.request.*;
@@ -13,11 +15,15 @@
 import pro.gravit.launcher.base.request.WebSocketEvent;
 import pro.gravit.launcher.base.request.auth.AuthRequest;
 import pro.gravit.launcher.base.request.auth.GetAvailabilityAuthRequest;
+import pro.gravit.utils.CborJsonWriter;
+import pro.gravit.utils.CborReader;
 import pro.gravit.utils.ProviderMap;
 import pro.gravit.utils.UniversalJsonAdapter;
 import pro.gravit.utils.helper.LogHelper;
 
 import javax.net.ssl.SSLException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
@@ -48,6 +54,7 @@ public static void appendTypeAdapters(GsonBuilder builder) {
         builder.registerTypeAdapter(GetAvailabilityAuthRequestEvent.AuthAvailabilityDetails.class, new UniversalJsonAdapter<>(GetAvailabilityAuthRequest.providers));
         builder.registerTypeAdapter(OptionalAction.class, new UniversalJsonAdapter<>(OptionalAction.providers));
         builder.registerTypeAdapter(OptionalTrigger.class, new UniversalJsonAdapter<>(OptionalTrigger.providers));
+        builder.registerTypeAdapterFactory(new UpdateRequestEvent.CompactAdapterFactory());
     }
 
     private static URI createURL(String address) {
@@ -64,6 +71,19 @@ void onMessage(String message) {
         eventHandle(result);
     }
 
+    @Override
+    void onBinaryMessage(byte[] message) {
+        WebSocketEvent result;
+        try {
+            JsonElement element = CborReader.parse(new ByteArrayInputStream(message));
+            LogHelper.dev("Received %s", element);
+            result = gson.fromJson(element, WebSocketEvent.class);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        eventHandle(result);
+    }
+
     public abstract <T extends WebSocketEvent> void eventHandle(T event);
 
     @Override
@@ -113,6 +133,7 @@ public void registerResults() {
             results.register("getAssetUploadUrl", GetAssetUploadUrlRequestEvent.class);
             results.register("assetUploadInfo", AssetUploadInfoRequestEvent.class);
             results.register("getConnectUUID", GetConnectUUIDRequestEvent.class);
+            results.register("batch", BatchRequestEvent.class);
             resultsRegistered = true;
         }
     }
@@ -121,15 +142,19 @@ public void waitIfNotConnected() {
     }
 
     public void sendObject(Object obj) throws IOException {
-        waitIfNotConnected();
-        if (webSocket == null || webSocket.isInputClosed()) reconnectCallback.onReconnect();
-        send(gson.toJson(obj, WebSocketRequest.class));
+        sendObject(obj, WebSocketRequest.class);
     }
 
     public void sendObject(Object obj, Type type) throws IOException {
         waitIfNotConnected();
         if (webSocket == null || webSocket.isInputClosed()) reconnectCallback.onReconnect();
-        send(gson.toJson(obj, type));
+        if (isBinary()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            gson.toJson(obj, type, new CborJsonWriter(output));
+            send(output.toByteArray());
+        } else {
+            send(gson.toJson(obj, type));
+        }
     }
 
     @FunctionalInterface
@@ -1,7 +1,9 @@
 package pro.gravit.launcher.base.request.websockets;
 
 import pro.gravit.launcher.base.events.RequestEvent;
+import pro.gravit.launcher.base.events.request.BatchRequestEvent;
 import pro.gravit.launcher.base.events.request.ErrorRequestEvent;
+import pro.gravit.launcher.base.request.BatchRequest;
 import pro.gravit.launcher.base.request.Request;
 import pro.gravit.launcher.base.request.RequestException;
 import pro.gravit.launcher.base.request.RequestService;
@@ -11,7 +13,9 @@
 
 import javax.net.ssl.SSLException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -81,11 +85,16 @@ public <T extends WebSocketEvent> void eventHandle(T webSocketEvent) {
                 processEventHandlers(webSocketEvent);
                 return;
             }
+            if (event instanceof BatchRequestEvent batchEvent && batchEvent.results != null) {
+                for (WebSocketEvent result : batchEvent.results) {
+                    eventHandle(result);
+                }
+            }
             @SuppressWarnings("rawtypes")
             CompletableFuture future = futureMap.get(event.requestUUID);
             if (future != null) {
-                if (event instanceof ErrorRequestEvent) {
-                    future.completeExceptionally(new RequestException(((ErrorRequestEvent) event).error));
+                if (event instanceof ErrorRequestEvent errorEvent) {
+                    future.completeExceptionally(new RequestException(errorEvent.error, errorEvent.retryAfter));
                 } else
                     future.complete(event);
                 futureMap.remove(event.requestUUID);
@@ -105,6 +114,32 @@ public <T extends WebSocketEvent> CompletableFuture<T> request(Request<T> reques
         return result;
     }
 
+    /**
+     * Sends requests in one message. Returned futures complete as if each request was sent by {@link #request(Request)}
+     *
+     * @param parallel execute requests concurrently on the server instead of in order
+     */
+    public List<CompletableFuture<? extends WebSocketEvent>> requestBatch(List<? extends Request<?>> requests, boolean parallel) throws IOException {
+        List<CompletableFuture<? extends WebSocketEvent>> futures = new ArrayList<>(requests.size());
+        for (Request<?> request : requests) {
+            CompletableFuture<? extends WebSocketEvent> future = new CompletableFuture<>();
+            futureMap.put(request.requestUUID, future);
+            futures.add(future);
+        }
+        request(new BatchRequest(new ArrayList<>(requests), parallel)).whenComplete((event, ex) -> {
+            if (ex == null) {
+                return;
+            }
+            for (Request<?> request : requests) {
+                CompletableFuture<?> future = futureMap.remove(request.requestUUID);
+                if (future != null) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        return futures;
+    }
+
     @Override
     public void registerEventHandler(RequestService.EventHandler handler) {
         eventHandlers.add(handler);
@@ -0,0 +1,101 @@
+package pro.gravit.launcher;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.base.Downloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+public class DownloaderTest {
+    @TempDir
+    public static Path dir;
+    public static HttpServer server;
+    public static final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    public static final Map<String, String> acceptEncodings = new ConcurrentHashMap<>();
+
+    @BeforeAll
+    public static void prepare() throws IOException {
+        files.put("packed.txt", "Compressible content of a config file\n".repeat(2048).getBytes(StandardCharsets.UTF_8));
+        files.put("plain.txt", "Sent as is".getBytes(StandardCharsets.UTF_8));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String name = exchange.getRequestURI().getPath().substring(1);
+            byte[] body = files.get(name);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            acceptEncodings.put(name, String.valueOf(acceptEncoding));
+            if (name.equals("packed.txt") && "gzip".equals(acceptEncoding)) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream output = new GZIPOutputStream(compressed)) {
+                    output.write(body);
+                }
+                body = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterAll
+    public static void close() {
+        server.stop(0);
+    }
+
+    @Test
+    public void gzipDownloadTest() throws Exception {
+        AtomicLong progress = new AtomicLong();
+        List<Path> completed = new ArrayList<>();
+        Downloader.DownloadCallback callback = new Downloader.DownloadCallback() {
+            @Override
+            public void apply(long fullDiff) {
+                progress.addAndGet(fullDiff);
+            }
+
+            @Override
+            public void onComplete(Path path) {
+                synchronized (completed) {
+                    completed.add(path);
+                }
+            }
+        };
+        Path target = dir.resolve("gzip");
+        List<Downloader.SizedFile> list = new ArrayList<>();
+        long total = 0;
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            list.add(new Downloader.SizedFile(e.getKey(), e.getValue().length));
+            total += e.getValue().length;
+        }
+        String baseUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+        Downloader.downloadList(list, baseUrl, target, callback, null, 2).getFuture().get(30, TimeUnit.SECONDS);
+        Assertions.assertEquals("gzip", acceptEncodings.get("packed.txt"));
+        for (Map.Entry<String, byte[]> e : files.entrySet()) {
+            Assertions.assertArrayEquals(e.getValue(), Files.readAllBytes(target.resolve(e.getKey())));
+            // Compressed body is removed after unpacking
+            Assertions.assertFalse(Files.exists(target.resolve(e.getKey() + ".gz-part")));
+        }
+        Assertions.assertEquals(2, completed.size());
+        // Progress is corrected from compressed to file sizes
+        Assertions.assertEquals(total, progress.get());
+    }
+}
@@ -0,0 +1,75 @@
+package pro.gravit.launcher;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.base.events.request.UpdateRequestEvent;
+import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.hasher.HashedEntry;
+import pro.gravit.launcher.core.hasher.HashedEntryAdapter;
+import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.SecurityHelper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class UpdateRequestEventTest {
+    @TempDir
+    public static Path dir;
+    public static Gson gson;
+    public static HashedDir hdir;
+
+    @BeforeAll
+    public static void prepare() throws IOException {
+        GsonBuilder builder = new GsonBuilder();
+        builder.registerTypeAdapter(HashedEntry.class, new HashedEntryAdapter());
+        builder.registerTypeAdapterFactory(new UpdateRequestEvent.CompactAdapterFactory());
+        gson = builder.create();
+        for (int i = 0; i < 4; ++i) {
+            IOHelper.write(dir.resolve("mods").resolve("mod" + i + ".jar"), SecurityHelper.randomBytes(256));
+        }
+        hdir = new HashedDir(dir, null, true, true);
+    }
+
+    @Test
+    public void compactTest() throws IOException {
+        String json = gson.toJson(UpdateRequestEvent.compact(UpdateRequestEvent.encodeHashedDir(hdir), "http://localhost/", false));
+        Assertions.assertFalse(json.contains("\"map\""));
+        UpdateRequestEvent event = gson.fromJson(json, UpdateRequestEvent.class);
+        Assertions.assertNull(event.compactHdir);
+        Assertions.assertTrue(hdir.diff(event.hdir, null).isSame());
+    }
+
+    @Test
+    public void legacyTest() {
+        String json = gson.toJson(new UpdateRequestEvent(hdir, "http://localhost/", false));
+        UpdateRequestEvent event = gson.fromJson(json, UpdateRequestEvent.class);
+        Assertions.assertTrue(hdir.diff(event.hdir, null).isSame());
+    }
+
+    @Test
+    public void resolveTest() throws IOException {
+        String version = UpdateRequestEvent.versionOf(hdir);
+        Assertions.assertNotNull(version);
+        UpdateRequestEvent unchanged = new UpdateRequestEvent(null, "http://localhost/", false);
+        unchanged.version = version;
+        unchanged.unchanged = true;
+        Assertions.assertSame(hdir, unchanged.resolve(hdir));
+        Assertions.assertThrows(IllegalStateException.class, () -> unchanged.resolve(null));
+
+        Path changedDir = dir.resolve("changed");
+        IOHelper.write(changedDir.resolve("mods").resolve("mod0.jar"), SecurityHelper.randomBytes(256));
+        HashedDir current = new HashedDir(changedDir, null, true, true);
+        HashedDir.Delta delta = current.delta(hdir);
+        UpdateRequestEvent event = gson.fromJson(gson.toJson(UpdateRequestEvent.compact(UpdateRequestEvent.encodeHashedDir(delta.changed), "http://localhost/", false)), UpdateRequestEvent.class);
+        event.version = UpdateRequestEvent.versionOf(current);
+        event.baseVersion = version;
+        event.removed = delta.removed;
+        Assertions.assertTrue(current.diff(event.resolve(hdir), null).isSame());
+        event.version = version;
+        Assertions.assertThrows(IllegalStateException.class, () -> event.resolve(hdir));
+    }
+}
@@ -225,11 +225,32 @@ private static void realMain(String[] args) throws Throwable {
     }
 
     public static void verifyHDir(Path dir, HashedDir hdir, FileNameMatcher matcher, boolean digest, boolean checkExtra) throws IOException {
+        verifyHDir(dir, hdir, matcher, digest, checkExtra, getHashThreads());
+    }
+
+    private static int getHashThreads() {
+        int defaultThreads = Runtime.getRuntime().availableProcessors();
+        String property = System.getProperty("launcher.hashThreads");
+        if (property == null) {
+            return defaultThreads;
+        }
+        try {
+            int threads = Integer.parseInt(property.trim());
+            if (threads > 0) {
+                return threads;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        LogHelper.warning("Invalid launcher.hashThreads %s, using %d", property, defaultThreads);
+        return defaultThreads;
+    }
+
+    public static void verifyHDir(Path dir, HashedDir hdir, FileNameMatcher matcher, boolean digest, boolean checkExtra, int hashThreads) throws IOException {
         //if (matcher != null)
         //    matcher = matcher.verifyOnly();
 
         // Hash directory and compare (ignore update-only matcher entries, it will break offline-mode)
-        HashedDir currentHDir = new HashedDir(dir, matcher, true, digest);
+        HashedDir currentHDir = new HashedDir(dir, matcher, true, digest, hashThreads);
         HashedDir.Diff diff = hdir.diff(currentHDir, matcher);
         AtomicReference<String> latestPath = new AtomicReference<>("unknown");
         if (!diff.mismatch.isEmpty() || (checkExtra && !diff.extra.isEmpty())) {
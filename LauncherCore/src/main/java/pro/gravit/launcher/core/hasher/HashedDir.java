@@ -5,19 +5,29 @@
 import pro.gravit.launcher.core.serialize.HOutput;
 import pro.gravit.launcher.core.serialize.stream.EnumSerializer;
 import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.SecurityHelper;
 import pro.gravit.utils.helper.VerifyHelper;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public final class HashedDir extends HashedEntry {
     @LauncherNetworkAPI
     private final Map<String, HashedEntry> map = new HashMap<>(32);
+    // Aggregate of children names and digests, null if unknown or invalidated
+    @LauncherNetworkAPI
+    private byte[] digest;
 
     public HashedDir() {
     }
@@ -38,14 +48,90 @@ public HashedDir(HInput input) throws IOException {
             // Try add entry to map
             VerifyHelper.putIfAbsent(map, name, entry, String.format("Duplicate dir entry: '%s'", name));
         }
+        digest = input.readBoolean() ? input.readByteArray(-HashedFile.DIGEST_ALGO.bytes) : null;
     }
 
 
     public HashedDir(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest) throws IOException {
-        IOHelper.walk(dir, new HashFileVisitor(dir, matcher, allowSymlinks, digest), true);
+        hash(dir, matcher, allowSymlinks, digest, null, null);
+    }
+
+    /**
+     * Builds the same tree as {@link #HashedDir(Path, FileNameMatcher, boolean, boolean)},
+     * but digests files on a temporary pool of {@code parallelism} threads.
+     * Values less than 2 fall back to single-threaded hashing
+     */
+    public HashedDir(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest, int parallelism) throws IOException {
+        if (!digest || parallelism < 2) {
+            hash(dir, matcher, allowSymlinks, digest, null, null);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            hash(dir, matcher, allowSymlinks, true, pool, null);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds the same tree as {@link #HashedDir(Path, FileNameMatcher, boolean, boolean)},
+     * but digests files on the given executor. The executor is not shut down
+     */
+    public HashedDir(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest, ExecutorService executor) throws IOException {
+        hash(dir, matcher, allowSymlinks, digest, executor, null);
+    }
+
+    /**
+     * Same as {@link #HashedDir(Path, FileNameMatcher, boolean, boolean, ExecutorService)},
+     * but reuses digests from {@code cache} for files whose attributes did not change.
+     * Both executor and cache are optional
+     */
+    public HashedDir(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest, ExecutorService executor, DigestCache cache) throws IOException {
+        hash(dir, matcher, allowSymlinks, digest, executor, cache);
+    }
+
+    private void hash(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest, ExecutorService executor, DigestCache cache) throws IOException {
+        if (!digest || executor == null) {
+            IOHelper.walk(dir, new HashFileVisitor(dir, matcher, allowSymlinks, digest, cache, null), true);
+            if (digest)
+                updateDigest();
+            return;
+        }
+        // Walk tree with undigested placeholders, then replace them in the same map slots
+        List<PendingDigest> pending = new ArrayList<>(256);
+        IOHelper.walk(dir, new HashFileVisitor(dir, matcher, allowSymlinks, true, cache, pending), true);
+        List<Future<byte[]>> futures = new ArrayList<>(pending.size());
+        try {
+            for (PendingDigest p : pending) {
+                futures.add(executor.submit(() -> SecurityHelper.digest(HashedFile.DIGEST_ALGO, p.file)));
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                PendingDigest p = pending.get(i);
+                byte[] fileDigest = futures.get(i).get();
+                if (cache != null)
+                    cache.put(p.path, p.attrs, fileDigest);
+                p.parent.map.put(p.name, new HashedFile(p.attrs.size(), fileDigest));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Hashing interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) throw ioException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(cause);
+        } finally {
+            for (Future<byte[]> future : futures) {
+                future.cancel(true);
+            }
+        }
+        updateDigest();
     }
 
     public Diff diff(HashedDir other, FileNameMatcher matcher) {
+        if (isSameDigest(other))
+            return new Diff(new HashedDir(), new HashedDir());
         HashedDir mismatch = sideDiff(other, matcher, new LinkedList<>(), true);
         HashedDir extra = other.sideDiff(this, matcher, new LinkedList<>(), false);
         return new Diff(mismatch, extra);
@@ -57,15 +143,141 @@ public Diff compare(HashedDir other, FileNameMatcher matcher) {
         return new Diff(mismatch, extra);
     }
 
+    /**
+     * Changes needed to turn {@code previous} into this dir. Neither tree is modified
+     */
+    public Delta delta(HashedDir previous) {
+        HashedDir changed = isSameDigest(previous) ? new HashedDir() : sideDiff(previous, null, new LinkedList<>(), true);
+        List<String> removed = new ArrayList<>();
+        collectRemoved(previous, "", removed);
+        return new Delta(changed, removed);
+    }
+
+    private void collectRemoved(HashedDir previous, String prefix, List<String> removed) {
+        if (isSameDigest(previous))
+            return;
+        for (Entry<String, HashedEntry> mapEntry : previous.map.entrySet()) {
+            String name = mapEntry.getKey();
+            HashedEntry previousEntry = mapEntry.getValue();
+            HashedEntry entry = map.get(name);
+            if (entry == null || entry.getType() != previousEntry.getType()) {
+                removed.add(prefix + name);
+            } else if (entry instanceof HashedDir dir) {
+                dir.collectRemoved((HashedDir) previousEntry, prefix + name + "/", removed);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this dir with {@code removed} paths deleted and {@code changed} entries merged in
+     */
+    public HashedDir applyDelta(HashedDir changed, Collection<String> removed) {
+        HashedDir result = copy();
+        if (removed != null) {
+            for (String path : removed) {
+                FindRecursiveResult found = result.findRecursive(path);
+                if (found.entry != null)
+                    found.parent.map.remove(found.name);
+            }
+        }
+        if (changed != null)
+            result.merge(changed);
+        result.updateDigest();
+        return result;
+    }
+
+    private void merge(HashedDir changed) {
+        for (Entry<String, HashedEntry> mapEntry : changed.map.entrySet()) {
+            HashedEntry entry = mapEntry.getValue();
+            HashedEntry current = map.get(mapEntry.getKey());
+            if (entry instanceof HashedDir dir && current instanceof HashedDir currentDir) {
+                currentDir.merge(dir);
+            } else {
+                map.put(mapEntry.getKey(), entry instanceof HashedDir dir ? dir.copy() : copyFile((HashedFile) entry));
+            }
+        }
+    }
+
+    public HashedDir copy() {
+        HashedDir result = new HashedDir();
+        for (Entry<String, HashedEntry> mapEntry : map.entrySet()) {
+            HashedEntry entry = mapEntry.getValue();
+            result.map.put(mapEntry.getKey(), entry instanceof HashedDir dir ? dir.copy() : copyFile((HashedFile) entry));
+        }
+        result.digest = digest;
+        return result;
+    }
+
+    private static HashedFile copyFile(HashedFile file) {
+        return new HashedFile(file.size, file.getDigest());
+    }
+
     public void remove(String name) {
+        digest = null;
         map.remove(name);
     }
 
     public void moveTo(String elementName, HashedDir target, String targetElementName) {
+        digest = null;
+        target.digest = null;
         HashedEntry entry = map.remove(elementName);
         target.map.put(targetElementName, entry);
     }
 
+    /**
+     * Aggregate digest of this directory or null if some file in it was not digested.
+     * {@link #remove(String)} and {@link #moveTo(String, HashedDir, String)} invalidate only the directories
+     * they are called on, after changing a nested directory call {@link #invalidateDigest(String)}
+     * or {@link #updateDigest()} on the root
+     */
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    /**
+     * Invalidates aggregate digests of this directory and of every directory on the '/' separated path,
+     * so a changed nested entry can't be skipped by {@link #diff(HashedDir, FileNameMatcher)}
+     */
+    public void invalidateDigest(String path) {
+        StringTokenizer t = new StringTokenizer(path, "/");
+        HashedDir current = this;
+        while (current != null) {
+            current.digest = null;
+            current = t.hasMoreTokens() && current.map.get(t.nextToken()) instanceof HashedDir dir ? dir : null;
+        }
+    }
+
+    /**
+     * Recomputes aggregate digests of this directory and all subdirectories
+     */
+    public byte[] updateDigest() {
+        MessageDigest md = SecurityHelper.newDigest(HashedFile.DIGEST_ALGO);
+        boolean complete = true;
+        List<String> names = new ArrayList<>(map.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            HashedEntry entry = map.get(name);
+            byte[] entryDigest = entry instanceof HashedDir dir ? dir.updateDigest() : ((HashedFile) entry).getDigest();
+            if (entryDigest == null) {
+                complete = false;
+            }
+            if (complete) {
+                md.update((byte) entry.getType().getNumber());
+                md.update(IOHelper.encode(name));
+                md.update((byte) 0);
+                md.update(entryDigest);
+            }
+        }
+        digest = complete ? md.digest() : null;
+        return digest;
+    }
+
+    private boolean isSameDigest(HashedDir other) {
+        byte[] digest = this.digest;
+        byte[] otherDigest = other.digest;
+        return digest != null && otherDigest != null && Arrays.equals(digest, otherDigest);
+    }
+
     public FindRecursiveResult findRecursive(String path) {
         StringTokenizer t = new StringTokenizer(path, "/");
         HashedDir current = this;
@@ -95,6 +307,23 @@ public FindRecursiveResult findRecursive(String path) {
         return new FindRecursiveResult(current, entry, name);
     }
 
+    /**
+     * Lookup of a file by '/' separated path, unlike {@link #findRecursive(String)} it does not expose dirs
+     *
+     * @return file or null if path does not point to a file
+     */
+    public HashedFile findFile(String path) {
+        StringTokenizer t = new StringTokenizer(path, "/");
+        HashedEntry current = this;
+        while (t.hasMoreTokens()) {
+            if (!(current instanceof HashedDir dir)) {
+                return null;
+            }
+            current = dir.map.get(t.nextToken());
+        }
+        return current instanceof HashedFile file ? file : null;
+    }
+
     public HashedEntry getEntry(String name) {
         return map.get(name);
     }
@@ -115,8 +344,8 @@ public Map<String, HashedEntry> map() {
     public HashedEntry resolve(Iterable<String> path) {
         HashedEntry current = this;
         for (String pathEntry : path) {
-            if (current instanceof HashedDir) {
-                current = ((HashedDir) current).map.get(pathEntry);
+            if (current instanceof HashedDir currentDir) {
+                current = currentDir.map.get(pathEntry);
                 continue;
             }
             return null;
@@ -160,6 +389,8 @@ private HashedDir sideDiff(HashedDir other, FileNameMatcher matcher, Deque<Strin
                 case DIR:
                     HashedDir dir = (HashedDir) entry;
                     HashedDir otherDir = (HashedDir) otherEntry;
+                    if (dir.isSameDigest(otherDir)) // Identical subtree
+                        break;
                     if (mismatchList || shouldUpdate) { // Maybe isn't need to go deeper?
                         HashedDir mismatch = dir.sideDiff(otherDir, matcher, path, mismatchList);
                         if (!mismatch.isEmpty())
@@ -245,6 +476,11 @@ public void write(HOutput output) throws IOException {
             EnumSerializer.write(output, entry.getType());
             entry.write(output);
         }
+        // Read once, the tree may be shared with other threads
+        byte[] digest = this.digest;
+        output.writeBoolean(digest != null);
+        if (digest != null)
+            output.writeByteArray(digest, -HashedFile.DIGEST_ALGO.bytes);
     }
 
     public void walk(CharSequence separator, WalkCallback callback) throws IOException {
@@ -285,6 +521,16 @@ public interface WalkCallback {
         WalkAction walked(String path, String name, HashedEntry entry) throws IOException;
     }
 
+    /**
+     * Source of already known file digests. Paths are relative to the hashed root and use '/' as separator.
+     * Calls are made from the thread which constructs {@link HashedDir}
+     */
+    public interface DigestCache {
+        byte[] get(String path, BasicFileAttributes attrs);
+
+        void put(String path, BasicFileAttributes attrs, byte[] digest);
+    }
+
     public static class FindRecursiveResult {
         public final HashedDir parent;
         public final HashedEntry entry;
@@ -297,6 +543,20 @@ public FindRecursiveResult(HashedDir parent, HashedEntry entry, String name) {
         }
     }
 
+    public static final class Delta {
+        public final HashedDir changed;
+        public final List<String> removed;
+
+        private Delta(HashedDir changed, List<String> removed) {
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        public boolean isEmpty() {
+            return changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
     public static final class Diff {
 
         public final HashedDir mismatch;
@@ -314,21 +574,28 @@ public boolean isSame() {
         }
     }
 
+    private record PendingDigest(HashedDir parent, String name, String path, Path file, BasicFileAttributes attrs) {
+    }
+
     private final class HashFileVisitor extends SimpleFileVisitor<Path> {
         private final Path dir;
         private final FileNameMatcher matcher;
         private final boolean allowSymlinks;
         private final boolean digest;
+        private final DigestCache cache;
+        private final List<PendingDigest> pending;
         private final Deque<String> path = new LinkedList<>();
         private final Deque<HashedDir> stack = new LinkedList<>();
         // State
         private HashedDir current = HashedDir.this;
 
-        private HashFileVisitor(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest) {
+        private HashFileVisitor(Path dir, FileNameMatcher matcher, boolean allowSymlinks, boolean digest, DigestCache cache, List<PendingDigest> pending) {
             this.dir = dir;
             this.matcher = matcher;
             this.allowSymlinks = allowSymlinks;
             this.digest = digest;
+            this.cache = cache;
+            this.pending = pending;
         }
 
         @Override
@@ -375,7 +642,25 @@ public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IO
             // Add file (may be unhashed, if exclusion)
             path.add(IOHelper.getFileName(file));
             boolean doDigest = digest && (matcher == null || matcher.shouldUpdate(path));
-            current.map.put(path.removeLast(), new HashedFile(file, attrs.size(), doDigest));
+            String relativePath = doDigest && cache != null ? String.join("/", path) : null;
+            String name = path.removeLast();
+            if (!doDigest) {
+                current.map.put(name, new HashedFile(file, attrs.size(), false));
+                return super.visitFile(file, attrs);
+            }
+            byte[] fileDigest = cache == null ? null : cache.get(relativePath, attrs);
+            if (fileDigest != null) {
+                current.map.put(name, new HashedFile(attrs.size(), fileDigest));
+            } else if (pending != null) {
+                // Digest later in parallel, keep map slot to preserve iteration order
+                pending.add(new PendingDigest(current, name, relativePath, file, attrs));
+                current.map.put(name, new HashedFile(attrs.size(), null));
+            } else {
+                fileDigest = SecurityHelper.digest(HashedFile.DIGEST_ALGO, file);
+                if (cache != null)
+                    cache.put(relativePath, attrs, fileDigest);
+                current.map.put(name, new HashedFile(attrs.size(), fileDigest));
+            }
             return super.visitFile(file, attrs);
         }
     }
@@ -0,0 +1,251 @@
+package pro.gravit.utils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes Gson output as CBOR (RFC 8949) instead of JSON text. Arrays and objects use indefinite length encoding,
+ * so any type adapter can stream into it. Read the result with {@link CborReader}
+ */
+public class CborJsonWriter extends JsonWriter {
+    private final OutputStream out;
+    private String deferredName;
+
+    public CborJsonWriter(OutputStream out) {
+        super(Writer.nullWriter());
+        this.out = out;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writeDeferredName();
+        out.write(CborReader.MAJOR_ARRAY << 5 | CborReader.INDEFINITE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        out.write(CborReader.BREAK);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writeDeferredName();
+        out.write(CborReader.MAJOR_MAP << 5 | CborReader.INDEFINITE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        if (deferredName != null) {
+            throw new IllegalStateException("Dangling name: " + deferredName);
+        }
+        out.write(CborReader.BREAK);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) {
+        Objects.requireNonNull(name, "name == null");
+        if (deferredName != null) {
+            throw new IllegalStateException("Already wrote a name, expecting a value");
+        }
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        writeText(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writeDeferredName();
+        out.write(value ? CborReader.TRUE : CborReader.FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        checkFinite(value);
+        writeDeferredName();
+        out.write(CborReader.FLOAT);
+        writeLong(Float.floatToIntBits(value), 4);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        checkFinite(value);
+        writeDeferredName();
+        out.write(CborReader.DOUBLE);
+        writeLong(Double.doubleToLongBits(value), 8);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writeDeferredName();
+        if (value >= 0) {
+            writeHeader(CborReader.MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(CborReader.MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            return value(value.longValue());
+        }
+        if (value instanceof Float) {
+            return value(value.floatValue());
+        }
+        if (value instanceof Double) {
+            return value(value.doubleValue());
+        }
+        if (value instanceof BigInteger bigInteger && bigInteger.bitLength() < 64) {
+            return value(bigInteger.longValue());
+        }
+        // LazilyParsedNumber, BigDecimal and others
+        String string = value.toString();
+        try {
+            return value(Long.parseLong(string));
+        } catch (NumberFormatException e) {
+            return value(Double.parseDouble(string));
+        }
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (deferredName != null) {
+            if (!getSerializeNulls()) {
+                deferredName = null;
+                return this;
+            }
+            writeDeferredName();
+        }
+        out.write(CborReader.NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeElement(JsonParser.parseString(value));
+        return this;
+    }
+
+    private void writeElement(JsonElement element) throws IOException {
+        if (element.isJsonNull()) {
+            nullValue();
+        } else if (element.isJsonArray()) {
+            beginArray();
+            for (JsonElement e : element.getAsJsonArray()) {
+                writeElement(e);
+            }
+            endArray();
+        } else if (element.isJsonObject()) {
+            beginObject();
+            for (Map.Entry<String, JsonElement> e : element.getAsJsonObject().entrySet()) {
+                name(e.getKey());
+                writeElement(e.getValue());
+            }
+            endObject();
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                value(primitive.getAsBoolean());
+            } else if (primitive.isNumber()) {
+                value(primitive.getAsNumber());
+            } else {
+                value(primitive.getAsString());
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void checkFinite(double value) {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+    }
+
+    private void writeDeferredName() throws IOException {
+        if (deferredName != null) {
+            writeText(deferredName);
+            deferredName = null;
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(CborReader.MAJOR_TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeHeader(int major, long value) throws IOException {
+        int type = major << 5;
+        if (value < 24) {
+            out.write(type | (int) value);
+        } else if (value < 0x100) {
+            out.write(type | 24);
+            out.write((int) value);
+        } else if (value < 0x10000) {
+            out.write(type | 25);
+            writeLong(value, 2);
+        } else if (value < 0x100000000L) {
+            out.write(type | 26);
+            writeLong(value, 4);
+        } else {
+            out.write(type | 27);
+            writeLong(value, 8);
+        }
+    }
+
+    private void writeLong(long value, int bytes) throws IOException {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package pro.gravit.utils;
+
+import com.google.gson.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses CBOR (RFC 8949) into a Gson tree, which can be bound with {@link Gson#fromJson(JsonElement, Class)}.
+ * Supports the data model of JSON: no byte strings, tags are ignored
+ *
+ * @see CborJsonWriter
+ */
+public final class CborReader {
+    static final int MAJOR_UNSIGNED = 0;
+    static final int MAJOR_NEGATIVE = 1;
+    static final int MAJOR_TEXT = 3;
+    static final int MAJOR_ARRAY = 4;
+    static final int MAJOR_MAP = 5;
+    static final int MAJOR_TAG = 6;
+    static final int MAJOR_SIMPLE = 7;
+    static final int INDEFINITE = 31;
+    static final int FALSE = 0xf4;
+    static final int TRUE = 0xf5;
+    static final int NULL = 0xf6;
+    static final int UNDEFINED = 0xf7;
+    static final int HALF = 0xf9;
+    static final int FLOAT = 0xfa;
+    static final int DOUBLE = 0xfb;
+    static final int BREAK = 0xff;
+    private static final int MAX_DEPTH = 255;
+    private final InputStream in;
+    private int depth;
+
+    private CborReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads one data item, the stream must not contain anything after it
+     */
+    public static JsonElement parse(InputStream in) throws IOException {
+        CborReader reader = new CborReader(in);
+        JsonElement element = reader.readItem(reader.readByte());
+        if (in.read() != -1) {
+            throw new JsonSyntaxException("CBOR document was not fully consumed");
+        }
+        return element;
+    }
+
+    private JsonElement readItem(int initial) throws IOException {
+        int major = initial >>> 5;
+        int info = initial & 0x1f;
+        switch (major) {
+            case MAJOR_UNSIGNED -> {
+                long value = readArgument(info);
+                return new JsonPrimitive(value >= 0 ? (Number) value : unsigned(value));
+            }
+            case MAJOR_NEGATIVE -> {
+                long value = readArgument(info);
+                return new JsonPrimitive(value >= 0 ? (Number) (-1 - value) : unsigned(value).not());
+            }
+            case MAJOR_TEXT -> {
+                return new JsonPrimitive(readText(info));
+            }
+            case MAJOR_ARRAY -> {
+                enter();
+                JsonArray array = new JsonArray();
+                if (info == INDEFINITE) {
+                    for (int b = readByte(); b != BREAK; b = readByte()) {
+                        array.add(readItem(b));
+                    }
+                } else {
+                    for (long i = readArgument(info); i > 0; i--) {
+                        array.add(readItem(readByte()));
+                    }
+                }
+                depth--;
+                return array;
+            }
+            case MAJOR_MAP -> {
+                enter();
+                JsonObject object = new JsonObject();
+                if (info == INDEFINITE) {
+                    for (int b = readByte(); b != BREAK; b = readByte()) {
+                        object.add(readKey(b), readItem(readByte()));
+                    }
+                } else {
+                    for (long i = readArgument(info); i > 0; i--) {
+                        object.add(readKey(readByte()), readItem(readByte()));
+                    }
+                }
+                depth--;
+                return object;
+            }
+            case MAJOR_TAG -> {
+                // Tags are skipped in a loop, a long run of them must not recurse past MAX_DEPTH
+                int next = initial;
+                do {
+                    readArgument(next & 0x1f);
+                    next = readByte();
+                } while (next >>> 5 == MAJOR_TAG);
+                return readItem(next);
+            }
+            case MAJOR_SIMPLE -> {
+                return switch (initial) {
+                    case FALSE -> new JsonPrimitive(false);
+                    case TRUE -> new JsonPrimitive(true);
+                    case NULL, UNDEFINED -> JsonNull.INSTANCE;
+                    case HALF -> new JsonPrimitive(halfToFloat((int) readLong(2)));
+                    case FLOAT -> new JsonPrimitive(Float.intBitsToFloat((int) readLong(4)));
+                    case DOUBLE -> new JsonPrimitive(Double.longBitsToDouble(readLong(8)));
+                    default -> throw new JsonSyntaxException(String.format("Unsupported CBOR simple value 0x%02x", initial));
+                };
+            }
+            default -> throw new JsonSyntaxException("Unsupported CBOR major type " + major);
+        }
+    }
+
+    private String readKey(int initial) throws IOException {
+        if (initial >>> 5 != MAJOR_TEXT) {
+            throw new JsonSyntaxException("CBOR map key is not a text string");
+        }
+        return readText(initial & 0x1f);
+    }
+
+    private String readText(int info) throws IOException {
+        if (info != INDEFINITE) {
+            return new String(readBytes(readArgument(info)), StandardCharsets.UTF_8);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int b = readByte(); b != BREAK; b = readByte()) {
+            if (b >>> 5 != MAJOR_TEXT || (b & 0x1f) == INDEFINITE) {
+                throw new JsonSyntaxException("Invalid CBOR text string chunk");
+            }
+            builder.append(new String(readBytes(readArgument(b & 0x1f)), StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    private byte[] readBytes(long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE - 8) {
+            throw new JsonSyntaxException("CBOR string is too long");
+        }
+        // Not preallocated, so a forged length can't exhaust memory before the stream ends
+        byte[] bytes = in.readNBytes((int) length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+
+    private long readArgument(int info) throws IOException {
+        if (info < 24) {
+            return info;
+        }
+        return switch (info) {
+            case 24 -> readLong(1);
+            case 25 -> readLong(2);
+            case 26 -> readLong(4);
+            case 27 -> readLong(8);
+            default -> throw new JsonSyntaxException("Invalid CBOR additional info " + info);
+        };
+    }
+
+    private long readLong(int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = value << 8 | readByte();
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new JsonSyntaxException("CBOR nesting is too deep");
+        }
+    }
+
+    private static BigInteger unsigned(long value) {
+        return new BigInteger(Long.toUnsignedString(value));
+    }
+
+    private static float halfToFloat(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * 0x1p-24f;
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (1 + mantissa / 1024f) * (float) Math.pow(2, exponent - 15);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
@@ -0,0 +1,109 @@
+package pro.gravit.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Thread-safe map with a size limit and time to live. When full, the least recently used entry is evicted
+ *
+ * @param <K> key type
+ * @param <V> value type, null values are not stored
+ */
+public class ExpiringCache<K, V> {
+    private final LinkedHashMap<K, Entry<V>> map;
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return cached value or null if it is missing or expired
+     */
+    public V get(K key) {
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.created < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                map.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        Entry<V> entry = new Entry<>(value, System.nanoTime());
+        synchronized (map) {
+            map.put(key, entry);
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    public void removeIf(BiPredicate<K, V> predicate) {
+        synchronized (map) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, Entry<V>> e = iterator.next();
+                if (predicate.test(e.getKey(), e.getValue().value)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (map) {
+            size = map.size();
+        }
+        return new Stats(size, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public record Stats(int size, long hits, long misses, long evictions) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private record Entry<V>(V value, long created) {
+    }
+}
@@ -0,0 +1,49 @@
+package pro.gravit.utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader for objects whose type property comes first. After {@link #readType(String)} the object
+ * looks not started yet, so it can be read by the adapter of the resolved class without building a tree
+ */
+public class TypeFirstJsonReader extends JsonReader {
+    private boolean objectStarted;
+
+    public TypeFirstJsonReader(Reader in) {
+        super(in);
+    }
+
+    /**
+     * @return value of the first property or null if the document does not start with a string property with this name
+     */
+    public String readType(String propName) throws IOException {
+        if (super.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
+        super.beginObject();
+        if (!hasNext() || !propName.equals(nextName()) || super.peek() != JsonToken.STRING) {
+            return null;
+        }
+        String type = nextString();
+        objectStarted = true;
+        return type;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        return objectStarted ? JsonToken.BEGIN_OBJECT : super.peek();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        if (objectStarted) {
+            objectStarted = false;
+            return;
+        }
+        super.beginObject();
+    }
+}
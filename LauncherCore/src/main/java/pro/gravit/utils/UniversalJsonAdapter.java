@@ -1,7 +1,10 @@
 package pro.gravit.utils;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 
 /**
@@ -65,6 +68,32 @@ public R deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext
         return context.deserialize(json, cls);
     }
 
+    /**
+     * Single pass deserialization of a document whose type property comes first
+     *
+     * @return deserialized object or null if the type property is not first, the reader is partially consumed in this case
+     */
+    public R read(Gson gson, Reader reader) throws IOException {
+        TypeFirstJsonReader jsonReader = new TypeFirstJsonReader(reader);
+        jsonReader.setStrictness(Strictness.LENIENT);
+        String typename = jsonReader.readType(PROP_NAME);
+        if (typename == null) {
+            return null;
+        }
+        Class<? extends R> cls = providerMap.getClass(typename);
+        if (cls == null) {
+            if (defaultClass == null) {
+                throw new JsonParseException(String.format("%s: type %s not registered", name, typename));
+            }
+            cls = defaultClass;
+        }
+        R result = gson.getAdapter(cls).read(jsonReader);
+        if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("JSON document was not fully consumed");
+        }
+        return result;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public JsonElement serialize(R src, Type typeOfSrc, JsonSerializationContext context) {
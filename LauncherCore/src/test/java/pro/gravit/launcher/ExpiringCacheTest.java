@@ -0,0 +1,37 @@
+package pro.gravit.launcher;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import pro.gravit.utils.ExpiringCache;
+
+import java.util.concurrent.TimeUnit;
+
+public class ExpiringCacheTest {
+    @Test
+    public void evictTest() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 1, TimeUnit.MINUTES);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        Assertions.assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        // "b" is the least recently used
+        Assertions.assertNull(cache.get("b"));
+        Assertions.assertEquals("1", cache.get("a"));
+        Assertions.assertEquals("3", cache.get("c"));
+        cache.removeIf((k, v) -> v.equals("1"));
+        Assertions.assertNull(cache.get("a"));
+        ExpiringCache.Stats stats = cache.getStats();
+        Assertions.assertEquals(1, stats.size());
+        Assertions.assertEquals(3, stats.hits());
+        Assertions.assertEquals(2, stats.misses());
+        Assertions.assertEquals(1, stats.evictions());
+    }
+
+    @Test
+    public void expireTest() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(2, 0, TimeUnit.SECONDS);
+        cache.put("a", "1");
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(0, cache.getStats().size());
+    }
+}
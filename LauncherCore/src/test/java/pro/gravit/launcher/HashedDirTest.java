@@ -0,0 +1,157 @@
+package pro.gravit.launcher;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.serialize.HInput;
+import pro.gravit.launcher.core.serialize.HOutput;
+import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.SecurityHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HashedDirTest {
+    @TempDir
+    public static Path dir;
+
+    private static void fill(Path root) throws IOException {
+        for (int i = 0; i < 8; ++i) {
+            IOHelper.write(root.resolve("mods").resolve("mod" + i + ".jar"), SecurityHelper.randomBytes(1024 + i));
+            IOHelper.write(root.resolve("config").resolve("sub" + i % 3).resolve("file" + i + ".cfg"), SecurityHelper.randomBytes(64 * i));
+        }
+        IOHelper.write(root.resolve("options.txt"), SecurityHelper.randomBytes(16));
+    }
+
+    private static byte[] serialize(HashedDir hdir) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (HOutput output = new HOutput(stream)) {
+            hdir.write(output);
+        }
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void parallelHashTest() throws IOException {
+        Path root = dir.resolve("parallel");
+        fill(root);
+        HashedDir sequential = new HashedDir(root, null, true, true);
+        HashedDir parallel = new HashedDir(root, null, true, true, 4);
+        Assertions.assertTrue(sequential.diff(parallel, null).isSame());
+        Assertions.assertArrayEquals(serialize(sequential), serialize(parallel));
+    }
+
+    @Test
+    public void digestCacheTest() throws IOException {
+        Path root = dir.resolve("cache");
+        fill(root);
+        Map<String, byte[]> digests = new HashMap<>();
+        HashedDir.DigestCache cache = new HashedDir.DigestCache() {
+            @Override
+            public byte[] get(String path, BasicFileAttributes attrs) {
+                return digests.get(path);
+            }
+
+            @Override
+            public void put(String path, BasicFileAttributes attrs, byte[] digest) {
+                Assertions.assertNull(digests.put(path, digest));
+            }
+        };
+        HashedDir first = new HashedDir(root, null, true, true, null, cache);
+        Assertions.assertEquals(17, digests.size());
+        Assertions.assertTrue(digests.containsKey("config/sub1/file4.cfg"));
+        HashedDir second = new HashedDir(root, null, true, true, null, cache);
+        Assertions.assertArrayEquals(serialize(first), serialize(second));
+        Assertions.assertArrayEquals(serialize(new HashedDir(root, null, true, true)), serialize(second));
+    }
+
+    @Test
+    public void aggregateDigestTest() throws IOException {
+        Path root = dir.resolve("aggregate");
+        fill(root);
+        HashedDir first = new HashedDir(root, null, true, true);
+        HashedDir second = new HashedDir(root, null, true, true, 4);
+        Assertions.assertNotNull(first.getDigest());
+        Assertions.assertArrayEquals(first.getDigest(), second.getDigest());
+        Assertions.assertNull(new HashedDir(root, null, true, false).getDigest());
+
+        HashedDir deserialized = new HashedDir(new HInput(serialize(first)));
+        Assertions.assertArrayEquals(first.getDigest(), deserialized.getDigest());
+
+        IOHelper.write(root.resolve("config").resolve("sub2").resolve("file2.cfg"), SecurityHelper.randomBytes(128));
+        HashedDir changed = new HashedDir(root, null, true, true);
+        Assertions.assertFalse(Arrays.equals(first.getDigest(), changed.getDigest()));
+        HashedDir.Diff diff = first.diff(changed, null);
+        Assertions.assertFalse(diff.isSame());
+        Assertions.assertNotNull(diff.mismatch.findRecursive("config/sub2/file2.cfg").entry);
+
+        byte[] changedDigest = changed.getDigest();
+        HashedDir config = (HashedDir) changed.getEntry("config");
+        changed.map();
+        changed.findRecursive("config/sub2");
+        Assertions.assertArrayEquals(changedDigest, changed.getDigest());
+        Assertions.assertNotNull(config.getDigest());
+
+        config.remove("sub2");
+        Assertions.assertNull(config.getDigest());
+        Assertions.assertArrayEquals(changedDigest, changed.getDigest());
+        Assertions.assertFalse(Arrays.equals(changedDigest, changed.updateDigest()));
+        Assertions.assertFalse(first.diff(changed, null).isSame());
+    }
+
+    @Test
+    public void nestedRemoveDiffTest() throws IOException {
+        Path root = dir.resolve("nested");
+        fill(root);
+        HashedDir local = new HashedDir(root, null, true, true);
+        HashedDir target = new HashedDir(new HInput(serialize(local)));
+        // Like a disabled optional file: the local tree still has it, the target doesn't
+        HashedDir.FindRecursiveResult found = target.findRecursive("config/sub1/file4.cfg");
+        found.parent.remove(found.name);
+        Assertions.assertArrayEquals(local.getDigest(), target.getDigest());
+        target.invalidateDigest("config/sub1/file4.cfg");
+        Assertions.assertNull(target.getDigest());
+        Assertions.assertNull(((HashedDir) target.getEntry("config")).getDigest());
+        Assertions.assertNotNull(((HashedDir) target.getEntry("mods")).getDigest());
+        HashedDir.Diff diff = target.diff(local, null);
+        Assertions.assertTrue(diff.mismatch.isEmpty());
+        Assertions.assertNotNull(diff.extra.findRecursive("config/sub1/file4.cfg").entry);
+
+        HashedDir updated = new HashedDir(new HInput(serialize(local)));
+        found = updated.findRecursive("config/sub1/file4.cfg");
+        found.parent.remove(found.name);
+        updated.updateDigest();
+        Assertions.assertFalse(Arrays.equals(local.getDigest(), updated.getDigest()));
+        Assertions.assertNotNull(updated.diff(local, null).extra.findRecursive("config/sub1/file4.cfg").entry);
+    }
+
+    @Test
+    public void deltaTest() throws IOException {
+        Path root = dir.resolve("delta");
+        fill(root);
+        HashedDir previous = new HashedDir(root, null, true, true);
+        Assertions.assertTrue(previous.delta(previous).isEmpty());
+
+        IOHelper.write(root.resolve("mods").resolve("mod1.jar"), SecurityHelper.randomBytes(2048));
+        IOHelper.write(root.resolve("mods").resolve("new.jar"), SecurityHelper.randomBytes(16));
+        Files.delete(root.resolve("mods").resolve("mod2.jar"));
+        IOHelper.deleteDir(root.resolve("config").resolve("sub0"), true);
+        HashedDir current = new HashedDir(root, null, true, true);
+
+        HashedDir.Delta delta = current.delta(previous);
+        Assertions.assertEquals(2, delta.removed.size());
+        Assertions.assertTrue(delta.removed.contains("mods/mod2.jar"));
+        Assertions.assertTrue(delta.removed.contains("config/sub0"));
+        HashedDir applied = previous.applyDelta(delta.changed, delta.removed);
+        Assertions.assertTrue(current.diff(applied, null).isSame());
+        Assertions.assertArrayEquals(current.getDigest(), applied.getDigest());
+        Assertions.assertNotNull(previous.findRecursive("mods/mod2.jar").entry);
+    }
+}
@@ -2,16 +2,31 @@
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import pro.gravit.utils.CborJsonWriter;
+import pro.gravit.utils.CborReader;
 import pro.gravit.utils.ProviderMap;
 import pro.gravit.utils.UniversalJsonAdapter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class SerializeTest {
     public static GsonBuilder builder;
     public static Gson gson;
     public static ProviderMap<TestInterface> map;
+    public static UniversalJsonAdapter<TestInterface> adapter;
 
     @BeforeAll
     public static void prepare() {
@@ -19,7 +34,8 @@ public static void prepare() {
         map = new ProviderMap<>();
         map.register("test", MyTestClass.class);
         map.register("test2", MyTestClass2.class);
-        builder.registerTypeAdapter(TestInterface.class, new UniversalJsonAdapter<>(map));
+        adapter = new UniversalJsonAdapter<>(map);
+        builder.registerTypeAdapter(TestInterface.class, adapter);
         gson = builder.create();
     }
 
@@ -34,6 +50,63 @@ public void main() {
         Assertions.assertEquals(test2.get(), "BBBB");
     }
 
+    @Test
+    public void typeFirstTest() throws IOException {
+        TestInterface test = adapter.read(gson, new StringReader("{\"type\":\"test2\",\"b\":\"BBBB\",\"unknown\":[1,{}]}"));
+        Assertions.assertInstanceOf(MyTestClass2.class, test);
+        Assertions.assertEquals("BBBB", test.get());
+        Assertions.assertNull(adapter.read(gson, new StringReader("{\"a\":\"AAAA\",\"type\":\"test\"}")));
+        Assertions.assertThrows(JsonParseException.class, () -> adapter.read(gson, new StringReader("{\"type\":\"test3\"}")));
+        Assertions.assertThrows(JsonParseException.class, () -> adapter.read(gson, new StringReader("{\"type\":\"test\",\"a\":\"AAAA\"}{}")));
+    }
+
+    @Test
+    public void cborTest() throws IOException {
+        CborTestClass src = new CborTestClass();
+        src.text = "Привет \u0000 \ud83d\ude00";
+        src.small = -1;
+        src.big = Long.MIN_VALUE;
+        src.number = 0.1;
+        src.flag = true;
+        src.values = List.of(0L, 23L, 24L, 255L, 65536L, 4294967296L, -25L);
+        src.map = new LinkedHashMap<>();
+        src.map.put("1", new MyTestClass("AAAA"));
+        src.map.put("2", new MyTestClass2("BBBB"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        gson.toJson(src, CborTestClass.class, new CborJsonWriter(output));
+        byte[] bytes = output.toByteArray();
+        CborTestClass result = gson.fromJson(CborReader.parse(new ByteArrayInputStream(bytes)), CborTestClass.class);
+        Assertions.assertEquals(gson.toJson(src), gson.toJson(result));
+        Assertions.assertNull(result.missing);
+        Assertions.assertEquals(JsonParser.parseString("[1,-1,\"a\",null,1.5]"), CborReader.parse(new ByteArrayInputStream(new byte[]{
+                (byte) 0x85, 0x01, 0x20, 0x61, 0x61, (byte) 0xf6, (byte) 0xf9, 0x3e, 0x00})));
+        Assertions.assertThrows(EOFException.class, () -> CborReader.parse(new ByteArrayInputStream(bytes, 0, bytes.length - 1)));
+    }
+
+    @Test
+    public void cborNestingTest() throws IOException {
+        byte[] tags = new byte[1 << 20];
+        Arrays.fill(tags, (byte) 0xc0);
+        tags[tags.length - 1] = 0x01;
+        Assertions.assertEquals(JsonParser.parseString("1"), CborReader.parse(new ByteArrayInputStream(tags)));
+        byte[] tagsWithArgument = {(byte) 0xd8, 0x20, (byte) 0xd9, 0x01, 0x00, 0x61, 0x61};
+        Assertions.assertEquals(JsonParser.parseString("\"a\""), CborReader.parse(new ByteArrayInputStream(tagsWithArgument)));
+        byte[] arrays = new byte[1024];
+        Arrays.fill(arrays, (byte) 0x81);
+        Assertions.assertThrows(JsonParseException.class, () -> CborReader.parse(new ByteArrayInputStream(arrays)));
+    }
+
+    public static class CborTestClass {
+        public String text;
+        public int small;
+        public long big;
+        public double number;
+        public boolean flag;
+        public String missing;
+        public List<Long> values;
+        public Map<String, TestInterface> map;
+    }
+
     public interface TestInterface {
         String get();
     }
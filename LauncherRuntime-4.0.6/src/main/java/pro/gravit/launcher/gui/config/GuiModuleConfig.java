@@ -32,6 +32,9 @@ public class GuiModuleConfig {
     @LauncherInject(value = "modules.javaruntime.downloadthreads")
     public int downloadThreads = 4;
 
+    @LauncherInject(value = "modules.javaruntime.hashthreads")
+    public int hashThreads = 4;
+
     public static Object getDefault() {
         GuiModuleConfig config = new GuiModuleConfig();
         config.createAccountURL = "https://gravit.pro/createAccount.php";
@@ -43,6 +46,7 @@ public static Object getDefault() {
         config.autoAuth = true;
         config.locale = "UKRAINIAN";
         config.downloadThreads = 4;
+        config.hashThreads = 4;
         return config;
     }
 }
@@ -7,6 +7,7 @@
 import pro.gravit.launcher.gui.JavaFXApplication;
 import pro.gravit.launcher.gui.impl.ContextHelper;
 import pro.gravit.launcher.gui.utils.AssetIndexHelper;
+import pro.gravit.launcher.gui.utils.UpdateSnapshotHelper;
 import pro.gravit.launcher.core.hasher.FileNameMatcher;
 import pro.gravit.launcher.core.hasher.HashedDir;
 import pro.gravit.launcher.core.hasher.HashedEntry;
@@ -24,6 +25,7 @@
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class VisualDownloader {
@@ -68,7 +70,7 @@ public void sendUpdateAssetRequest(String dirName, Path dir, FileNameMatcher mat
             updateStatus.accept(UpdateScene.DownloadStatus.HASHING);
             application.workers.submit(() -> {
                 try {
-                    HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest);
+                    HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest, application.guiModuleConfig.hashThreads);
                     updateStatus.accept(UpdateScene.DownloadStatus.COMPLETE);
                     onSuccess.accept(hashedDir);
                 } catch (IOException e) {
@@ -78,27 +80,15 @@ public void sendUpdateAssetRequest(String dirName, Path dir, FileNameMatcher mat
             });
             return;
         }
-        UpdateRequest request = new UpdateRequest(dirName);
-        try {
-            updateStatus.accept(UpdateScene.DownloadStatus.REQUEST);
-            application.service.request(request).thenAccept(event -> {
-                LogHelper.dev("Start updating %s", dirName);
-                try {
-                    downloadAsset(dirName, dir, matcher, digest, assetIndex, onSuccess, event.hdir, event.url);
-                } catch (Exception e) {
-                    updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
-                    ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(e));
-                }
-            }).exceptionally((error) -> {
+        sendUpdateRequest(dirName, UpdateSnapshotHelper.read(dirName), (hdir, url) -> {
+            LogHelper.dev("Start updating %s", dirName);
+            try {
+                downloadAsset(dirName, dir, matcher, digest, assetIndex, onSuccess, hdir, url);
+            } catch (Exception e) {
                 updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
-                ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(error.getCause()));
-                // hide(2500, scene, onError);
-                return null;
-            });
-        } catch (IOException e) {
-            updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
-            errorHandle.accept(e);
-        }
+                ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(e));
+            }
+        });
     }
 
     public void sendUpdateRequest(String dirName, Path dir, FileNameMatcher matcher, boolean digest, OptionalView view,
@@ -108,7 +98,7 @@ public void sendUpdateRequest(String dirName, Path dir, FileNameMatcher matcher,
             updateStatus.accept(UpdateScene.DownloadStatus.HASHING);
             application.workers.submit(() -> {
                 try {
-                    HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest);
+                    HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest, application.guiModuleConfig.hashThreads);
                     updateStatus.accept(UpdateScene.DownloadStatus.COMPLETE);
                     onSuccess.accept(hashedDir);
                 } catch (IOException e) {
@@ -118,17 +108,35 @@ public void sendUpdateRequest(String dirName, Path dir, FileNameMatcher matcher,
             });
             return;
         }
-        UpdateRequest request = new UpdateRequest(dirName);
+        sendUpdateRequest(dirName, UpdateSnapshotHelper.read(dirName), (hdir, url) -> {
+            LogHelper.dev("Start updating %s", dirName);
+            try {
+                download(dirName, dir, matcher, digest, view, optionalsEnabled, onSuccess, hdir, url);
+            } catch (Exception e) {
+                updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
+                ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(e));
+            }
+        });
+    }
+
+    private void sendUpdateRequest(String dirName, UpdateSnapshotHelper.Snapshot snapshot, BiConsumer<HashedDir, String> onResponse) {
+        UpdateRequest request = new UpdateRequest(dirName, true, snapshot == null ? null : snapshot.version());
         try {
             updateStatus.accept(UpdateScene.DownloadStatus.REQUEST);
             application.service.request(request).thenAccept(event -> {
-                LogHelper.dev("Start updating %s", dirName);
+                HashedDir hdir;
                 try {
-                    download(dirName, dir, matcher, digest, view, optionalsEnabled, onSuccess, event.hdir, event.url);
-                } catch (Exception e) {
-                    updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
-                    ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(e));
+                    hdir = event.resolve(snapshot == null ? null : snapshot.hdir());
+                } catch (IllegalStateException e) {
+                    LogHelper.warning("Update snapshot of %s rejected: %s", dirName, e.getMessage());
+                    UpdateSnapshotHelper.delete(dirName);
+                    sendUpdateRequest(dirName, null, onResponse);
+                    return;
                 }
+                if (!event.unchanged) {
+                    UpdateSnapshotHelper.write(dirName, event.version, hdir);
+                }
+                onResponse.accept(hdir, event.url);
             }).exceptionally((error) -> {
                 updateStatus.accept(UpdateScene.DownloadStatus.ERROR);
                 ContextHelper.runInFxThreadStatic(() -> errorHandle.accept(error.getCause()));
@@ -147,11 +155,15 @@ private void download(String dirName, Path dir, FileNameMatcher matcher, boolean
         LinkedList<PathRemapperData> pathRemapper = optionalsEnabled
                 ? getPathRemapper(view, targetHDir)
                 : new LinkedList<>();
+        if (optionalsEnabled) {
+            // Optional actions changed nested dirs, the root aggregate must describe the tree diff() compares
+            targetHDir.updateDigest();
+        }
         addLog.accept("Hashing %s".formatted(dirName));
         updateStatus.accept(UpdateScene.DownloadStatus.HASHING);
         if (!IOHelper.exists(dir)) Files.createDirectories(dir);
 
-        HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest);
+        HashedDir hashedDir = new HashedDir(dir, matcher, false /* TODO */, digest, application.guiModuleConfig.hashThreads);
         HashedDir.Diff diff = targetHDir.diff(hashedDir, matcher);
         final List<Downloader.SizedFile> adds = getFilesList(dir, pathRemapper, diff.mismatch);
 
@@ -177,7 +189,7 @@ private void downloadAsset(String dirName, Path dir, FileNameMatcher matcher, bo
         if (!IOHelper.exists(dir)) Files.createDirectories(dir);
         Consumer<HashedDir> downloadAssetRunnable = (assetHDir) -> {
             try {
-                HashedDir hashedDir = new HashedDir(dir, matcher, false, digest);
+                HashedDir hashedDir = new HashedDir(dir, matcher, false, digest, application.guiModuleConfig.hashThreads);
                 HashedDir.Diff diff = assetHDir.diff(hashedDir, matcher);
                 final List<Downloader.SizedFile> adds = getFilesList(dir, pathRemapper, diff.mismatch);
 
@@ -47,6 +47,7 @@ public static void modifyHashedDir(AssetIndex index, HashedDir original) {
         for (String s : toDeleteDirs) {
             objects.remove(s);
         }
+        original.updateDigest();
     }
 
     public static class AssetIndex {
@@ -0,0 +1,74 @@
+package pro.gravit.launcher.gui.utils;
+
+import pro.gravit.launcher.core.hasher.HashedDir;
+import pro.gravit.launcher.core.serialize.HInput;
+import pro.gravit.launcher.core.serialize.HOutput;
+import pro.gravit.launcher.runtime.client.DirBridge;
+import pro.gravit.utils.helper.IOHelper;
+import pro.gravit.utils.helper.LogHelper;
+import pro.gravit.utils.helper.SecurityHelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps the last received update dir of each dirName, so the next update request can ask only for changes
+ */
+public class UpdateSnapshotHelper {
+    private static final int MAGIC = 0x55534E31;
+
+    private static Path getPath(String dirName) {
+        return DirBridge.dir.resolve("updates-snapshots")
+                .resolve(SecurityHelper.toHex(SecurityHelper.digest(SecurityHelper.DigestAlgorithm.SHA1, dirName)));
+    }
+
+    public static Snapshot read(String dirName) {
+        Path path = getPath(dirName);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (HInput input = new HInput(IOHelper.newInput(path))) {
+            if (input.readInt() != MAGIC || !dirName.equals(input.readString(0))) {
+                return null;
+            }
+            String version = input.readString(0);
+            return new Snapshot(version, new HashedDir(input));
+        } catch (IOException | RuntimeException e) {
+            LogHelper.warning("Update snapshot of %s is corrupted: %s", dirName, e.toString());
+            delete(dirName);
+            return null;
+        }
+    }
+
+    public static void write(String dirName, String version, HashedDir hdir) {
+        if (version == null) {
+            delete(dirName);
+            return;
+        }
+        Path path = getPath(dirName);
+        try {
+            IOHelper.createParentDirs(path);
+            try (HOutput output = new HOutput(IOHelper.newOutput(path))) {
+                output.writeInt(MAGIC);
+                output.writeString(dirName, 0);
+                output.writeString(version, 0);
+                hdir.write(output);
+            }
+        } catch (IOException e) {
+            LogHelper.warning("Failed to save update snapshot of %s: %s", dirName, e.toString());
+            delete(dirName);
+        }
+    }
+
+    public static void delete(String dirName) {
+        try {
+            Files.deleteIfExists(getPath(dirName));
+        } catch (IOException e) {
+            LogHelper.error(e);
+        }
+    }
+
+    public record Snapshot(String version, HashedDir hdir) {
+    }
+}